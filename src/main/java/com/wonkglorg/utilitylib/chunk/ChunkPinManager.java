@@ -0,0 +1,239 @@
+package com.wonkglorg.utilitylib.chunk;
+
+import com.wonkglorg.utilitylib.selection.Cuboid;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps the chunks of active regions loaded using plugin chunk tickets. Every chunk is reference counted, so overlapping regions share their
+ * tickets, and a chunk is only released after a grace period once the last holder let go of it. Regions that get pinned again within the grace
+ * period keep their chunks without any unload and reload in between.
+ * <p>
+ * Must only be used from the main thread.
+ */
+@SuppressWarnings("unused")
+public final class ChunkPinManager {
+    /**
+     * Rough memory footprint of a loaded chunk section (block states, biomes, block and sky light).
+     */
+    private static final long ESTIMATED_SECTION_BYTES = 8 * 1024;
+    /**
+     * Rough memory footprint of a loaded chunk besides its sections (heightmaps, tickets, entity and block entity maps).
+     */
+    private static final long ESTIMATED_CHUNK_BYTES = 16 * 1024;
+
+    private final Plugin plugin;
+    private final long gracePeriodTicks;
+    private final Map<String, Map<Long, PinnedChunk>> pinned = new HashMap<>();
+    private int pinnedCount;
+    /**
+     * Incremented by {@link #releaseAll()} so pins taken before it do not release chunks pinned afterwards.
+     */
+    private int generation;
+
+    /**
+     * @param plugin           the plugin owning the chunk tickets
+     * @param gracePeriodTicks the ticks a chunk stays loaded after its last holder released it
+     */
+    public ChunkPinManager(Plugin plugin, long gracePeriodTicks) {
+        this.plugin = plugin;
+        this.gracePeriodTicks = gracePeriodTicks;
+    }
+
+    /**
+     * Pins all chunks fully or partially contained in the given Cuboid. Chunks that are not loaded yet get loaded by adding the ticket.
+     *
+     * @param cuboid the region to keep loaded
+     * @return the pin, release it once the region is no longer active
+     */
+    public Pin pin(Cuboid cuboid) {
+        World world = cuboid.getWorld();
+        int minChunkX = (int) cuboid.getLowerX() >> 4;
+        int minChunkZ = (int) cuboid.getLowerZ() >> 4;
+        int maxChunkX = (int) cuboid.getUpperX() >> 4;
+        int maxChunkZ = (int) cuboid.getUpperZ() >> 4;
+
+        Map<Long, PinnedChunk> chunks = pinned.computeIfAbsent(world.getName(), name -> new HashMap<>());
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                long key = chunkKey(chunkX, chunkZ);
+                PinnedChunk chunk = chunks.get(key);
+                if (chunk == null) {
+                    world.addPluginChunkTicket(chunkX, chunkZ, plugin);
+                    chunks.put(key, new PinnedChunk());
+                    pinnedCount++;
+                    continue;
+                }
+                chunk.references++;
+                if (chunk.releaseTask != null) {
+                    chunk.releaseTask.cancel();
+                    chunk.releaseTask = null;
+                }
+            }
+        }
+        return new Pin(world.getName(), generation, minChunkX, minChunkZ, maxChunkX, maxChunkZ);
+    }
+
+    /**
+     * @return the amount of chunks currently held by this manager, including chunks waiting for their grace period to end
+     */
+    public int getPinnedChunkCount() {
+        return pinnedCount;
+    }
+
+    /**
+     * @param world the world to check
+     * @return the amount of chunks currently held by this manager in the given world
+     */
+    public int getPinnedChunkCount(World world) {
+        Map<Long, PinnedChunk> chunks = pinned.get(world.getName());
+        return chunks == null ? 0 : chunks.size();
+    }
+
+    /**
+     * Estimates the memory used by all pinned chunks, based on the height of their worlds. This is an approximation of a typical chunk, the
+     * actual usage depends on the palette sizes of the chunk contents.
+     *
+     * @return the estimated memory in bytes
+     */
+    public long getEstimatedMemoryUsage() {
+        long total = 0;
+        for (Map.Entry<String, Map<Long, PinnedChunk>> entry : pinned.entrySet()) {
+            World world = Bukkit.getWorld(entry.getKey());
+            if (world == null) {
+                continue;
+            }
+            long sections = (world.getMaxHeight() - world.getMinHeight()) >> 4;
+            total += entry.getValue().size() * (sections * ESTIMATED_SECTION_BYTES + ESTIMATED_CHUNK_BYTES);
+        }
+        return total;
+    }
+
+    /**
+     * Immediately removes all tickets of this manager, pins that are still held become no-ops. Call this when the plugin disables.
+     */
+    public void releaseAll() {
+        for (Map.Entry<String, Map<Long, PinnedChunk>> entry : pinned.entrySet()) {
+            World world = Bukkit.getWorld(entry.getKey());
+            for (Map.Entry<Long, PinnedChunk> chunk : entry.getValue().entrySet()) {
+                if (chunk.getValue().releaseTask != null) {
+                    chunk.getValue().releaseTask.cancel();
+                }
+                if (world != null) {
+                    world.removePluginChunkTicket(chunkX(chunk.getKey()), chunkZ(chunk.getKey()), plugin);
+                }
+            }
+        }
+        pinned.clear();
+        pinnedCount = 0;
+        generation++;
+    }
+
+    private void unpin(String worldName, int minChunkX, int minChunkZ, int maxChunkX, int maxChunkZ) {
+        Map<Long, PinnedChunk> chunks = pinned.get(worldName);
+        if (chunks == null) {
+            return;
+        }
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                long key = chunkKey(chunkX, chunkZ);
+                PinnedChunk chunk = chunks.get(key);
+                if (chunk == null || --chunk.references > 0) {
+                    continue;
+                }
+                chunk.releaseTask = Bukkit.getScheduler().runTaskLater(plugin, () -> release(worldName, key), gracePeriodTicks);
+            }
+        }
+    }
+
+    private void release(String worldName, long key) {
+        Map<Long, PinnedChunk> chunks = pinned.get(worldName);
+        if (chunks == null) {
+            return;
+        }
+        PinnedChunk chunk = chunks.get(key);
+        if (chunk == null || chunk.references > 0) {
+            return;
+        }
+        chunks.remove(key);
+        pinnedCount--;
+        if (chunks.isEmpty()) {
+            pinned.remove(worldName);
+        }
+        World world = Bukkit.getWorld(worldName);
+        if (world != null) {
+            world.removePluginChunkTicket(chunkX(key), chunkZ(key), plugin);
+        }
+    }
+
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    private static int chunkX(long key) {
+        return (int) (key >> 32);
+    }
+
+    private static int chunkZ(long key) {
+        return (int) key;
+    }
+
+    private static final class PinnedChunk {
+        private int references = 1;
+        private BukkitTask releaseTask;
+    }
+
+    /**
+     * A held pin on the chunks of a region. Releasing it more than once has no effect.
+     */
+    public final class Pin implements AutoCloseable {
+        private final String worldName;
+        private final int pinGeneration;
+        private final int minChunkX, minChunkZ, maxChunkX, maxChunkZ;
+        private boolean released;
+
+        private Pin(String worldName, int pinGeneration, int minChunkX, int minChunkZ, int maxChunkX, int maxChunkZ) {
+            this.worldName = worldName;
+            this.pinGeneration = pinGeneration;
+            this.minChunkX = minChunkX;
+            this.minChunkZ = minChunkZ;
+            this.maxChunkX = maxChunkX;
+            this.maxChunkZ = maxChunkZ;
+        }
+
+        /**
+         * Releases the chunks of this pin, chunks no longer held by any pin unload after the grace period.
+         */
+        public void release() {
+            if (released) {
+                return;
+            }
+            released = true;
+            if (pinGeneration != generation) {
+                return;
+            }
+            unpin(worldName, minChunkX, minChunkZ, maxChunkX, maxChunkZ);
+        }
+
+        /**
+         * @return the amount of chunks covered by this pin
+         */
+        public int getChunkCount() {
+            return (maxChunkX - minChunkX + 1) * (maxChunkZ - minChunkZ + 1);
+        }
+
+        public boolean isReleased() {
+            return released;
+        }
+
+        @Override
+        public void close() {
+            release();
+        }
+    }
+}
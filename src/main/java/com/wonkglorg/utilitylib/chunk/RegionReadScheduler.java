@@ -0,0 +1,127 @@
+package com.wonkglorg.utilitylib.chunk;
+
+import com.wonkglorg.utilitylib.selection.Cuboid;
+import org.bukkit.Bukkit;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Coalesces snapshot reads of {@link Cuboid}s. All requests made within a tick are collected and captured together on the next main thread
+ * tick, every chunk touched by any request is captured exactly once and the resulting immutable chunk snapshots are shared between all
+ * {@link RegionSnapshot}s of that tick. The main thread cost therefore depends on the amount of distinct chunks, not on how many features ask
+ * for overlapping regions.
+ * <p>
+ * Requests can be made from any thread, the futures are completed on the main thread.
+ */
+@SuppressWarnings("unused")
+public final class RegionReadScheduler {
+    private final Plugin plugin;
+    private final Queue<Request> requests = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private long requestCount;
+    private long capturedChunkCount;
+
+    /**
+     * @param plugin the plugin used to schedule the capture task
+     */
+    public RegionReadScheduler(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Requests a snapshot of the given Cuboid, captured together with all other requests on the next tick.
+     *
+     * @param cuboid the region to read
+     * @return a future completed on the main thread with the snapshot
+     */
+    public CompletableFuture<RegionSnapshot> read(Cuboid cuboid) {
+        CompletableFuture<RegionSnapshot> future = new CompletableFuture<>();
+        requests.offer(new Request(cuboid, future));
+        if (scheduled.compareAndSet(false, true)) {
+            Bukkit.getScheduler().runTask(plugin, this::capture);
+        }
+        return future;
+    }
+
+    /**
+     * Captures all pending requests immediately instead of waiting for the next tick, has to be called on the main thread.
+     */
+    public void capture() {
+        scheduled.set(false);
+        List<Request> batch = new ArrayList<>();
+        Request request;
+        while ((request = requests.poll()) != null) {
+            batch.add(request);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        Map<String, Map<Long, ChunkSnapshot>> snapshots = new HashMap<>();
+        for (Request pending : batch) {
+            try {
+                World world = pending.cuboid.getWorld();
+                Map<Long, ChunkSnapshot> chunks = snapshots.computeIfAbsent(world.getName(), name -> new HashMap<>());
+                int minChunkX = (int) pending.cuboid.getLowerX() >> 4;
+                int minChunkZ = (int) pending.cuboid.getLowerZ() >> 4;
+                int maxChunkX = (int) pending.cuboid.getUpperX() >> 4;
+                int maxChunkZ = (int) pending.cuboid.getUpperZ() >> 4;
+                for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+                    for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                        long key = RegionSnapshot.chunkKey(chunkX, chunkZ);
+                        if (!chunks.containsKey(key)) {
+                            chunks.put(key, world.getChunkAt(chunkX, chunkZ).getChunkSnapshot(false, false, false));
+                            capturedChunkCount++;
+                        }
+                    }
+                }
+            } catch (RuntimeException e) {
+                pending.future.completeExceptionally(e);
+            }
+        }
+
+        for (Request pending : batch) {
+            if (pending.future.isDone()) {
+                continue;
+            }
+            requestCount++;
+            Map<Long, ChunkSnapshot> chunks = Collections.unmodifiableMap(snapshots.get(pending.cuboid.getWorld().getName()));
+            pending.future.complete(new RegionSnapshot(pending.cuboid, chunks));
+        }
+    }
+
+    /**
+     * @return the amount of requests served since creation
+     */
+    public long getRequestCount() {
+        return requestCount;
+    }
+
+    /**
+     * @return the amount of chunk snapshots captured since creation, compare with {@link #getRequestCount()} to see how much was shared
+     */
+    public long getCapturedChunkCount() {
+        return capturedChunkCount;
+    }
+
+    private static final class Request {
+        private final Cuboid cuboid;
+        private final CompletableFuture<RegionSnapshot> future;
+
+        private Request(Cuboid cuboid, CompletableFuture<RegionSnapshot> future) {
+            this.cuboid = cuboid;
+            this.future = future;
+        }
+    }
+}
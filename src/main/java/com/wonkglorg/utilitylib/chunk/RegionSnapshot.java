@@ -0,0 +1,89 @@
+package com.wonkglorg.utilitylib.chunk;
+
+import com.wonkglorg.utilitylib.selection.Cuboid;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.block.data.BlockData;
+
+import java.util.Map;
+
+/**
+ * Immutable block snapshot of a {@link Cuboid}, backed by chunk snapshots that may be shared with other region snapshots captured in the same
+ * tick. Safe to read from any thread.
+ */
+@SuppressWarnings("unused")
+public final class RegionSnapshot {
+    private final Cuboid cuboid;
+    private final int minX, minY, minZ, maxX, maxY, maxZ;
+    private final Map<Long, ChunkSnapshot> chunks;
+
+    RegionSnapshot(Cuboid cuboid, Map<Long, ChunkSnapshot> chunks) {
+        this.cuboid = cuboid;
+        this.minX = (int) cuboid.getLowerX();
+        this.minY = (int) cuboid.getLowerY();
+        this.minZ = (int) cuboid.getLowerZ();
+        this.maxX = (int) cuboid.getUpperX();
+        this.maxY = (int) cuboid.getUpperY();
+        this.maxZ = (int) cuboid.getUpperZ();
+        this.chunks = chunks;
+    }
+
+    /**
+     * @param x the X co-ordinate
+     * @param y the Y co-ordinate
+     * @param z the Z co-ordinate
+     * @return true if the position is part of this snapshot
+     */
+    public boolean contains(int x, int y, int z) {
+        return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ;
+    }
+
+    /**
+     * @param x the X co-ordinate
+     * @param y the Y co-ordinate
+     * @param z the Z co-ordinate
+     * @return the material at the given position
+     * @throws IllegalArgumentException if the position is outside of the snapshot
+     */
+    public Material getType(int x, int y, int z) {
+        return getChunk(x, y, z).getBlockType(x & 15, y, z & 15);
+    }
+
+    /**
+     * @param x the X co-ordinate
+     * @param y the Y co-ordinate
+     * @param z the Z co-ordinate
+     * @return the block data at the given position
+     * @throws IllegalArgumentException if the position is outside of the snapshot
+     */
+    public BlockData getBlockData(int x, int y, int z) {
+        return getChunk(x, y, z).getBlockData(x & 15, y, z & 15);
+    }
+
+    /**
+     * @param chunkX the chunk's X co-ordinate
+     * @param chunkZ the chunk's Z co-ordinate
+     * @return the shared snapshot of the chunk or null if it is not part of this snapshot
+     */
+    public ChunkSnapshot getChunkSnapshot(int chunkX, int chunkZ) {
+        return chunks.get(chunkKey(chunkX, chunkZ));
+    }
+
+    /**
+     * @return the Cuboid this snapshot was captured for
+     */
+    public Cuboid getCuboid() {
+        return cuboid;
+    }
+
+    private ChunkSnapshot getChunk(int x, int y, int z) {
+        if (!contains(x, y, z)) {
+            throw new IllegalArgumentException("Position " + x + "," + y + "," + z + " is outside of " + cuboid);
+        }
+        return chunks.get(chunkKey(x >> 4, z >> 4));
+    }
+
+    static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+}
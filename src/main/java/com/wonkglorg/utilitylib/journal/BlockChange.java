@@ -0,0 +1,96 @@
+package com.wonkglorg.utilitylib.journal;
+
+import org.bukkit.Bukkit;
+import org.bukkit.block.data.BlockData;
+
+import java.util.UUID;
+
+/**
+ * A single recorded block change, holds the block data before and after the change as block data strings.
+ */
+@SuppressWarnings("unused")
+public final class BlockChange {
+    private final long time;
+    private final UUID actor;
+    private final int x, y, z;
+    private final String before;
+    private final String after;
+
+    /**
+     * @param time   the time of the change in milliseconds
+     * @param actor  the player responsible for the change, can be null
+     * @param x      the X co-ordinate
+     * @param y      the Y co-ordinate
+     * @param z      the Z co-ordinate
+     * @param before the block data string before the change
+     * @param after  the block data string after the change
+     */
+    public BlockChange(long time, UUID actor, int x, int y, int z, String before, String after) {
+        this.time = time;
+        this.actor = actor;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.before = before;
+        this.after = after;
+    }
+
+    /**
+     * @return the time of the change in milliseconds
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * @return the player responsible for the change or null if it was not caused by a player
+     */
+    public UUID getActor() {
+        return actor;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public int getZ() {
+        return z;
+    }
+
+    /**
+     * @return the block data string before the change
+     */
+    public String getBefore() {
+        return before;
+    }
+
+    /**
+     * @return the block data string after the change
+     */
+    public String getAfter() {
+        return after;
+    }
+
+    /**
+     * @return the parsed block data before the change
+     */
+    public BlockData getBeforeData() {
+        return Bukkit.createBlockData(before);
+    }
+
+    /**
+     * @return the parsed block data after the change
+     */
+    public BlockData getAfterData() {
+        return Bukkit.createBlockData(after);
+    }
+
+    @Override
+    public String toString() {
+        return "BlockChange{" + "time=" + time + ", actor=" + actor + ", x=" + x + ", y=" + y + ", z=" + z + ", before='" + before + '\'' + ", after='" + after + '\'' + '}';
+    }
+}
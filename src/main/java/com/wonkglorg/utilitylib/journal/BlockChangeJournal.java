@@ -0,0 +1,585 @@
+package com.wonkglorg.utilitylib.journal;
+
+import com.wonkglorg.utilitylib.selection.Cuboid;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Append only journal of block changes inside a {@link Cuboid}, allowing rollbacks of the region to a point in time and lookups of the changes
+ * made by a player without running a database.
+ * <p>
+ * {@link #record(UUID, Block, BlockData, BlockData)} is meant to be called from block events on the main thread, it only offers the change to a
+ * lock free queue. A single worker thread drains the queue every second, compresses the changes into a batch and appends it to a memory mapped
+ * log file. Every batch header lists the chunks and players it touches, which makes up the in memory per chunk and per player index and lets it
+ * be rebuilt on startup without decompressing anything. Queries run on the same worker and complete their futures there, rollbacks apply the
+ * restored blocks back on the main thread in bounded steps.
+ * <p>
+ * File layout:
+ * <pre>
+ * int magic
+ * batch*:
+ *   int compressedLength (0 marks the end of the log)
+ *   int entryCount
+ *   long minTime, long maxTime
+ *   int chunkCount, long chunkKey[chunkCount]
+ *   int actorCount, (long mostSignificant, long leastSignificant)[actorCount]
+ *   byte payload[compressedLength] (deflated: block data palette followed by the entries)
+ * </pre>
+ */
+@SuppressWarnings("unused")
+public final class BlockChangeJournal implements AutoCloseable {
+    private static final int MAGIC = 0x4A4E4C31;
+    private static final long FLUSH_INTERVAL_MILLIS = 1000;
+    private static final int MAX_BATCH_SIZE = 4096;
+    private static final int INITIAL_MAPPED_SIZE = 1 << 20;
+    private static final int ROLLBACK_BLOCKS_PER_TICK = 4096;
+
+    private final Plugin plugin;
+    private final Cuboid region;
+    private final FileChannel channel;
+    private final ScheduledExecutorService worker;
+    /**
+     * Changes recorded on the main thread that were not written yet.
+     */
+    private final Queue<BlockChange> pending = new ConcurrentLinkedQueue<>();
+
+    //only accessed by the worker after construction
+    private MappedByteBuffer buffer;
+    private int writeOffset;
+    private final List<BatchInfo> batches = new ArrayList<>();
+    private final Map<Long, OffsetList> chunkIndex = new HashMap<>();
+    private final Map<UUID, OffsetList> actorIndex = new HashMap<>();
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final Inflater inflater = new Inflater();
+
+    /**
+     * Opens the journal file for the given region, creating it if it does not exist. Existing batches are indexed from their headers.
+     *
+     * @param plugin the plugin used to schedule rollbacks on the main thread
+     * @param region the region to record changes in, changes outside of it are ignored
+     * @param file   the log file
+     * @throws IOException if the file could not be opened or is not a journal
+     */
+    public BlockChangeJournal(Plugin plugin, Cuboid region, Path file) throws IOException {
+        this.plugin = plugin;
+        this.region = region;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(INITIAL_MAPPED_SIZE, channel.size()));
+            if (buffer.getInt(0) == 0) {
+                buffer.putInt(0, MAGIC);
+            } else if (buffer.getInt(0) != MAGIC) {
+                throw new IOException(file + " is not a block change journal");
+            }
+            this.writeOffset = Integer.BYTES;
+            rebuildIndex();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        this.worker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "BlockChangeJournal-" + file.getFileName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.worker.scheduleWithFixedDelay(this::flushSafely, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Records a block change. Can be called from the main thread at any rate, the change is only queued and written by the worker.
+     * <p>
+     * Typical usage is {@code journal.record(player.getUniqueId(), block, event.getBlockReplacedState().getBlockData(), block.getBlockData())}
+     * in a place event or {@code journal.record(player.getUniqueId(), block, block.getBlockData(), air)} in a break event.
+     *
+     * @param actor  the player responsible for the change, can be null
+     * @param block  the changed block
+     * @param before the block data before the change
+     * @param after  the block data after the change
+     * @return true if the change is inside the region and was recorded
+     */
+    public boolean record(UUID actor, Block block, BlockData before, BlockData after) {
+        if (!region.contains(block)) {
+            return false;
+        }
+        pending.offer(new BlockChange(System.currentTimeMillis(), actor, block.getX(), block.getY(), block.getZ(), before.getAsString(), after.getAsString()));
+        return true;
+    }
+
+    /**
+     * Gets all changes made by the given player, oldest first.
+     *
+     * @param actor the player
+     * @return a future completed on the worker thread
+     */
+    public CompletableFuture<List<BlockChange>> getChanges(UUID actor) {
+        return query(() -> {
+            OffsetList offsets = actorIndex.get(actor);
+            return offsets == null ? new ArrayList<>() : readBatches(offsets.toArray(), change -> actor.equals(change.getActor()));
+        });
+    }
+
+    /**
+     * Gets all changes made in the given chunk, oldest first.
+     *
+     * @param chunkX the chunk's X co-ordinate
+     * @param chunkZ the chunk's Z co-ordinate
+     * @return a future completed on the worker thread
+     */
+    public CompletableFuture<List<BlockChange>> getChanges(int chunkX, int chunkZ) {
+        return query(() -> {
+            OffsetList offsets = chunkIndex.get(chunkKey(chunkX, chunkZ));
+            return offsets == null ? new ArrayList<>() : readBatches(offsets.toArray(), change -> change.getX() >> 4 == chunkX && change.getZ() >> 4 == chunkZ);
+        });
+    }
+
+    /**
+     * Gets all changes made at or after the given time, oldest first.
+     *
+     * @param time the time in milliseconds
+     * @return a future completed on the worker thread
+     */
+    public CompletableFuture<List<BlockChange>> getChangesSince(long time) {
+        return query(() -> readBatches(batchesSince(time), change -> change.getTime() >= time));
+    }
+
+    /**
+     * Rolls the region back to the state it had at the given time. The blocks to restore are resolved on the worker, every block gets the data it
+     * had before its first change at or after the time. The blocks are then placed on the main thread in steps of {@value #ROLLBACK_BLOCKS_PER_TICK}
+     * per tick.
+     *
+     * @param time the time in milliseconds to roll back to
+     * @return a future completed on the main thread with the amount of restored blocks once the rollback finished
+     */
+    public CompletableFuture<Integer> rollback(long time) {
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        getChangesSince(time).thenAccept(changes -> {
+            Map<Long, BlockChange> earliest = new LinkedHashMap<>();
+            for (BlockChange change : changes) {
+                earliest.putIfAbsent(positionKey(change.getX(), change.getY(), change.getZ()), change);
+            }
+            Bukkit.getScheduler().runTask(plugin, () -> new RollbackTask(earliest.values().iterator(), result).runTaskTimer(plugin, 0, 1));
+        }).exceptionally(throwable -> {
+            result.completeExceptionally(throwable);
+            return null;
+        });
+        return result;
+    }
+
+    /**
+     * @return the amount of changes waiting to be written
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * @return the region this journal records
+     */
+    public Cuboid getRegion() {
+        return region;
+    }
+
+    /**
+     * Writes all pending changes and closes the log file. If the worker does not stop in time, for example during a long query, the pending
+     * changes are dropped instead of being written while the worker may still write itself.
+     */
+    @Override
+    public void close() throws IOException {
+        worker.shutdown();
+        try {
+            if (!worker.awaitTermination(10, TimeUnit.SECONDS)) {
+                worker.shutdownNow();
+                worker.awaitTermination(10, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException e) {
+            worker.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        if (!worker.isTerminated()) {
+            //the worker may still be inside flush or a query, writing or ending the zlib streams now would race with it
+            plugin.getLogger().warning("Block change journal worker did not stop, " + pending.size() + " pending changes were not written");
+            channel.close();
+            return;
+        }
+        flush();
+        buffer.force();
+        deflater.end();
+        inflater.end();
+        channel.close();
+    }
+
+    private <T> CompletableFuture<T> query(IOSupplier<T> supplier) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        worker.execute(() -> {
+            try {
+                flush();
+                future.complete(supplier.get());
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (IOException | RuntimeException e) {
+            plugin.getLogger().log(Level.SEVERE, "Could not write block change journal", e);
+        }
+    }
+
+    //drains the queue into batches
+    private void flush() throws IOException {
+        List<BlockChange> batch = new ArrayList<>();
+        BlockChange change;
+        while ((change = pending.poll()) != null) {
+            batch.add(change);
+            if (batch.size() >= MAX_BATCH_SIZE) {
+                writeBatch(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            writeBatch(batch);
+        }
+    }
+
+    private void writeBatch(List<BlockChange> changes) throws IOException {
+        Map<String, Integer> palette = new LinkedHashMap<>();
+        Map<UUID, Integer> actors = new LinkedHashMap<>();
+        Set<Long> chunks = new LinkedHashSet<>();
+        long minTime = Long.MAX_VALUE, maxTime = Long.MIN_VALUE;
+        for (BlockChange change : changes) {
+            palette.putIfAbsent(change.getBefore(), palette.size());
+            palette.putIfAbsent(change.getAfter(), palette.size());
+            if (change.getActor() != null) {
+                actors.putIfAbsent(change.getActor(), actors.size());
+            }
+            chunks.add(chunkKey(change.getX() >> 4, change.getZ() >> 4));
+            minTime = Math.min(minTime, change.getTime());
+            maxTime = Math.max(maxTime, change.getTime());
+        }
+
+        ByteArrayOutputStream raw = new ByteArrayOutputStream(changes.size() * 24);
+        DataOutputStream out = new DataOutputStream(raw);
+        out.writeInt(palette.size());
+        for (String data : palette.keySet()) {
+            out.writeUTF(data);
+        }
+        for (BlockChange change : changes) {
+            out.writeLong(change.getTime());
+            out.writeInt(change.getX());
+            out.writeInt(change.getY());
+            out.writeInt(change.getZ());
+            out.writeInt(change.getActor() == null ? -1 : actors.get(change.getActor()));
+            out.writeInt(palette.get(change.getBefore()));
+            out.writeInt(palette.get(change.getAfter()));
+        }
+        byte[] compressed = compress(raw.toByteArray());
+
+        int headerSize = Integer.BYTES * 4 + Long.BYTES * 2 + chunks.size() * Long.BYTES + actors.size() * Long.BYTES * 2;
+        //keep room for the terminating 0 length
+        ensureCapacity(writeOffset + headerSize + compressed.length + Integer.BYTES);
+        int batchOffset = writeOffset;
+        ByteBuffer view = buffer.duplicate();
+        view.position(batchOffset);
+        view.putInt(compressed.length);
+        view.putInt(changes.size());
+        view.putLong(minTime);
+        view.putLong(maxTime);
+        view.putInt(chunks.size());
+        for (long chunk : chunks) {
+            view.putLong(chunk);
+        }
+        view.putInt(actors.size());
+        for (UUID actor : actors.keySet()) {
+            view.putLong(actor.getMostSignificantBits());
+            view.putLong(actor.getLeastSignificantBits());
+        }
+        view.put(compressed);
+        view.putInt(0);
+        writeOffset = view.position() - Integer.BYTES;
+
+        index(batchOffset, maxTime, chunks, actors.keySet());
+    }
+
+    private void index(int batchOffset, long maxTime, Iterable<Long> chunks, Iterable<UUID> actors) {
+        batches.add(new BatchInfo(batchOffset, maxTime));
+        for (long chunk : chunks) {
+            chunkIndex.computeIfAbsent(chunk, key -> new OffsetList()).add(batchOffset);
+        }
+        for (UUID actor : actors) {
+            actorIndex.computeIfAbsent(actor, key -> new OffsetList()).add(batchOffset);
+        }
+    }
+
+    //reads all batch headers written by previous sessions, a batch running past the end of the file ends the log
+    private void rebuildIndex() throws IOException {
+        ByteBuffer view = buffer.duplicate();
+        view.position(Integer.BYTES);
+        while (view.remaining() >= Integer.BYTES) {
+            int batchOffset = view.position();
+            int compressedLength = view.getInt();
+            if (compressedLength == 0) {
+                break;
+            }
+            if (compressedLength < 0) {
+                throw new IOException("Corrupted block change journal at offset " + batchOffset);
+            }
+            //entry count, min and max time and the chunk count
+            if (view.remaining() < Integer.BYTES * 2 + Long.BYTES * 2) {
+                discardBatch(batchOffset);
+                break;
+            }
+            view.getInt();
+            view.getLong();
+            long maxTime = view.getLong();
+            int chunkCount = view.getInt();
+            if (chunkCount < 0 || chunkCount > (view.remaining() - Integer.BYTES) / Long.BYTES) {
+                discardBatch(batchOffset);
+                break;
+            }
+            List<Long> chunks = new ArrayList<>(chunkCount);
+            for (int i = chunkCount; i > 0; i--) {
+                chunks.add(view.getLong());
+            }
+            int actorCount = view.getInt();
+            if (actorCount < 0 || actorCount > view.remaining() / (Long.BYTES * 2)) {
+                discardBatch(batchOffset);
+                break;
+            }
+            List<UUID> actors = new ArrayList<>(actorCount);
+            for (int i = actorCount; i > 0; i--) {
+                actors.add(new UUID(view.getLong(), view.getLong()));
+            }
+            if (compressedLength > view.remaining()) {
+                discardBatch(batchOffset);
+                break;
+            }
+            view.position(view.position() + compressedLength);
+            index(batchOffset, maxTime, chunks, actors);
+            writeOffset = view.position();
+        }
+    }
+
+    //a batch that was only partly written, the next batch overwrites it
+    private void discardBatch(int batchOffset) {
+        plugin.getLogger().warning("Discarding incomplete block change journal batch at offset " + batchOffset);
+        buffer.putInt(batchOffset, 0);
+        writeOffset = batchOffset;
+    }
+
+    private long[] batchesSince(long time) {
+        OffsetList offsets = new OffsetList();
+        for (BatchInfo batch : batches) {
+            if (batch.maxTime >= time) {
+                offsets.add(batch.offset);
+            }
+        }
+        return offsets.toArray();
+    }
+
+    private List<BlockChange> readBatches(long[] offsets, Predicate<BlockChange> filter) throws IOException {
+        List<BlockChange> result = new ArrayList<>();
+        for (long offset : offsets) {
+            readBatch((int) offset, filter, result);
+        }
+        return result;
+    }
+
+    private void readBatch(int offset, Predicate<BlockChange> filter, List<BlockChange> result) throws IOException {
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        int compressedLength = view.getInt();
+        int entryCount = view.getInt();
+        view.getLong();
+        view.getLong();
+        int chunkCount = view.getInt();
+        view.position(view.position() + chunkCount * Long.BYTES);
+        UUID[] actors = new UUID[view.getInt()];
+        for (int i = 0; i < actors.length; i++) {
+            actors[i] = new UUID(view.getLong(), view.getLong());
+        }
+        byte[] compressed = new byte[compressedLength];
+        view.get(compressed);
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(decompress(compressed)));
+        String[] palette = new String[in.readInt()];
+        for (int i = 0; i < palette.length; i++) {
+            palette[i] = in.readUTF();
+        }
+        for (int i = 0; i < entryCount; i++) {
+            long time = in.readLong();
+            int x = in.readInt();
+            int y = in.readInt();
+            int z = in.readInt();
+            int actor = in.readInt();
+            String before = palette[in.readInt()];
+            String after = palette[in.readInt()];
+            BlockChange change = new BlockChange(time, actor < 0 ? null : actors[actor], x, y, z, before, after);
+            if (filter.test(change)) {
+                result.add(change);
+            }
+        }
+    }
+
+    private byte[] compress(byte[] data) {
+        deflater.reset();
+        deflater.setInput(data);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+        byte[] chunk = new byte[8192];
+        while (!deflater.finished()) {
+            out.write(chunk, 0, deflater.deflate(chunk));
+        }
+        return out.toByteArray();
+    }
+
+    private byte[] decompress(byte[] data) throws IOException {
+        inflater.reset();
+        inflater.setInput(data);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+        byte[] chunk = new byte[8192];
+        try {
+            while (!inflater.finished()) {
+                int read = inflater.inflate(chunk);
+                if (read == 0 && inflater.needsInput()) {
+                    throw new IOException("Truncated block change batch");
+                }
+                out.write(chunk, 0, read);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupted block change batch", e);
+        }
+        return out.toByteArray();
+    }
+
+    //remaps the file with a larger size, the old mapping is released by the garbage collector
+    private void ensureCapacity(long required) throws IOException {
+        if (required <= buffer.capacity()) {
+            return;
+        }
+        if (required > Integer.MAX_VALUE) {
+            throw new IOException("Block change journal exceeds 2GB, start a new file");
+        }
+        long size = Math.min(Integer.MAX_VALUE, Math.max(required, (long) buffer.capacity() * 2));
+        buffer.force();
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    private static long positionKey(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+
+    @FunctionalInterface
+    private interface IOSupplier<T> {
+        T get() throws IOException;
+    }
+
+    private static final class BatchInfo {
+        private final int offset;
+        private final long maxTime;
+
+        private BatchInfo(int offset, long maxTime) {
+            this.offset = offset;
+            this.maxTime = maxTime;
+        }
+    }
+
+    /**
+     * Growable list of batch offsets, skips consecutive duplicates.
+     */
+    private static final class OffsetList {
+        private long[] values = new long[4];
+        private int size;
+
+        private void add(long value) {
+            if (size > 0 && values[size - 1] == value) {
+                return;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    /**
+     * Restores the resolved blocks in bounded steps on the main thread.
+     */
+    private final class RollbackTask extends BukkitRunnable {
+        private final Iterator<BlockChange> changes;
+        private final CompletableFuture<Integer> result;
+        private final World world = region.getWorld();
+        private int restored;
+
+        private RollbackTask(Iterator<BlockChange> changes, CompletableFuture<Integer> result) {
+            this.changes = changes;
+            this.result = result;
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (int i = 0; i < ROLLBACK_BLOCKS_PER_TICK && changes.hasNext(); i++) {
+                    BlockChange change = changes.next();
+                    world.getBlockAt(change.getX(), change.getY(), change.getZ()).setBlockData(change.getBeforeData(), false);
+                    restored++;
+                }
+            } catch (RuntimeException e) {
+                cancel();
+                result.completeExceptionally(e);
+                return;
+            }
+            if (!changes.hasNext()) {
+                cancel();
+                result.complete(restored);
+            }
+        }
+    }
+}
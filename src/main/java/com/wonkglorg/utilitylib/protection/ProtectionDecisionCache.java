@@ -0,0 +1,306 @@
+package com.wonkglorg.utilitylib.protection;
+
+import com.wonkglorg.utilitylib.selection.Cuboid;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the outcome of protection checks per player, chunk and action so repeated interactions in the same area skip region resolution.
+ * <p>
+ * The decisions of all actions for one player and chunk are packed into a single long, the lower 32 bits mark which actions are known and the
+ * upper 32 bits hold whether they are allowed. Cached decisions have to be invalidated whenever a region covering the chunk changes
+ * ({@link #invalidateRegion(Cuboid)}) or when the permissions or groups of a player change ({@link #invalidatePlayer(UUID)}).
+ * <p>
+ * A decision is only cached if the resolver reports it as valid for the whole chunk. The resolver has to prove that from every region
+ * intersecting the chunk column, not only the regions containing the checked location, see {@link #isChunkUniform(Iterable, World, int, int)}.
+ * A location just outside a claim has no containing region, yet the claim may still reach into the same chunk, so caching a decision there
+ * would answer checks inside the claim as well.
+ *
+ * @param <A> the enum of actions that are checked, at most 32 constants
+ */
+@SuppressWarnings("unused")
+public final class ProtectionDecisionCache<A extends Enum<A>> {
+    private static final int MAX_ACTIONS = 32;
+
+    private final int maxChunksPerPlayer;
+    private final Map<UUID, Map<String, Map<Long, Long>>> decisions = new ConcurrentHashMap<>();
+    /**
+     * Incremented by every invalidation, decisions resolved while an invalidation happened are not stored.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * @param actionType         the enum class of the actions
+     * @param maxChunksPerPlayer the maximum amount of chunks cached per player and world, the player's cache of that world is cleared once
+     *                           it grows beyond this
+     * @throws IllegalArgumentException if the enum has more than 32 constants
+     */
+    public ProtectionDecisionCache(Class<A> actionType, int maxChunksPerPlayer) {
+        if (actionType.getEnumConstants().length > MAX_ACTIONS) {
+            throw new IllegalArgumentException("At most " + MAX_ACTIONS + " actions are supported, " + actionType.getSimpleName() + " has "
+                    + actionType.getEnumConstants().length);
+        }
+        this.maxChunksPerPlayer = maxChunksPerPlayer;
+    }
+
+    /**
+     * Checks whether the player may perform the action at the given location, resolving and caching the decision if it is not known yet.
+     *
+     * @param player   the acting player
+     * @param location the location of the action
+     * @param action   the action
+     * @param resolver resolves the decision from the regions if it is not cached
+     * @return true if the action is allowed
+     */
+    public boolean check(Player player, Location location, A action, Resolver<A> resolver) {
+        UUID uuid = player.getUniqueId();
+        String worldName = location.getWorld().getName();
+        long key = chunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4);
+        int bit = action.ordinal();
+
+        Long cached = getChunk(uuid, worldName, key);
+        if (cached != null && (cached & (1L << bit)) != 0) {
+            return (cached & (1L << (bit + MAX_ACTIONS))) != 0;
+        }
+
+        long resolvedGeneration = generation.get();
+        Decision decision = resolver.resolve(player, location, action);
+        if (decision.isChunkWide()) {
+            long mask = (1L << bit) | (decision.isAllowed() ? 1L << (bit + MAX_ACTIONS) : 0);
+            store(uuid, worldName, key, mask, resolvedGeneration);
+        }
+        return decision.isAllowed();
+    }
+
+    /**
+     * Removes all decisions in the chunk, for all players.
+     *
+     * @param world  the world of the chunk
+     * @param chunkX the chunk's X co-ordinate
+     * @param chunkZ the chunk's Z co-ordinate
+     */
+    public void invalidateChunk(World world, int chunkX, int chunkZ) {
+        generation.incrementAndGet();
+        long key = chunkKey(chunkX, chunkZ);
+        for (Map<String, Map<Long, Long>> worlds : decisions.values()) {
+            Map<Long, Long> chunks = worlds.get(world.getName());
+            if (chunks != null) {
+                chunks.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Removes all decisions in chunks touched by the Cuboid, for all players. Call this when a region is created, removed, resized or its rules
+     * change, with the old and the new bounds if it moved.
+     *
+     * @param cuboid the changed region
+     */
+    public void invalidateRegion(Cuboid cuboid) {
+        generation.incrementAndGet();
+        String worldName = cuboid.getWorld().getName();
+        int minChunkX = (int) cuboid.getLowerX() >> 4;
+        int minChunkZ = (int) cuboid.getLowerZ() >> 4;
+        int maxChunkX = (int) cuboid.getUpperX() >> 4;
+        int maxChunkZ = (int) cuboid.getUpperZ() >> 4;
+        for (Map<String, Map<Long, Long>> worlds : decisions.values()) {
+            Map<Long, Long> chunks = worlds.get(worldName);
+            if (chunks == null) {
+                continue;
+            }
+            //walk whichever side is smaller, large regions usually cover more chunks than a player has cached
+            if ((long) (maxChunkX - minChunkX + 1) * (maxChunkZ - minChunkZ + 1) > chunks.size()) {
+                chunks.keySet().removeIf(key -> {
+                    int chunkX = (int) (key >> 32);
+                    int chunkZ = (int) (long) key;
+                    return chunkX >= minChunkX && chunkX <= maxChunkX && chunkZ >= minChunkZ && chunkZ <= maxChunkZ;
+                });
+                continue;
+            }
+            for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+                for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                    chunks.remove(chunkKey(chunkX, chunkZ));
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all decisions in the world, for all players.
+     *
+     * @param world the world
+     */
+    public void invalidateWorld(World world) {
+        generation.incrementAndGet();
+        for (Map<String, Map<Long, Long>> worlds : decisions.values()) {
+            worlds.remove(world.getName());
+        }
+    }
+
+    /**
+     * Removes all decisions of the player. Call this when the permissions or groups of the player change and when the player leaves.
+     *
+     * @param uuid the player's uuid
+     */
+    public void invalidatePlayer(UUID uuid) {
+        generation.incrementAndGet();
+        decisions.remove(uuid);
+    }
+
+    /**
+     * Removes all decisions of the player. Call this when the permissions or groups of the player change and when the player leaves.
+     *
+     * @param player the player
+     */
+    public void invalidatePlayer(Player player) {
+        invalidatePlayer(player.getUniqueId());
+    }
+
+    /**
+     * Removes all decisions.
+     */
+    public void clear() {
+        generation.incrementAndGet();
+        decisions.clear();
+    }
+
+    /**
+     * @return the amount of player and chunk entries currently cached
+     */
+    public int size() {
+        int size = 0;
+        for (Map<String, Map<Long, Long>> worlds : decisions.values()) {
+            for (Map<Long, Long> chunks : worlds.values()) {
+                size += chunks.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Checks whether every given region either contains the whole chunk column, from the minimum to the maximum height of the world, or does
+     * not touch it at all. Only then a decision made from these regions is valid anywhere in the chunk.
+     * <p>
+     * The regions have to include every region intersecting the chunk column. Passing only the regions containing the checked location can
+     * not prove anything, a region covering part of the chunk but not the location would be missed.
+     *
+     * @param regions every region intersecting the chunk column, regions outside of it are ignored
+     * @param world   the world of the chunk
+     * @param chunkX  the chunk's X co-ordinate
+     * @param chunkZ  the chunk's Z co-ordinate
+     * @return true if no region boundary runs through the chunk
+     */
+    public static boolean isChunkUniform(Iterable<Cuboid> regions, World world, int chunkX, int chunkZ) {
+        int minX = chunkX << 4;
+        int minZ = chunkZ << 4;
+        int maxX = minX + 15;
+        int maxZ = minZ + 15;
+        for (Cuboid region : regions) {
+            boolean touches = region.getLowerX() <= maxX && region.getUpperX() >= minX && region.getLowerZ() <= maxZ && region.getUpperZ() >= minZ;
+            if (!touches) {
+                continue;
+            }
+            boolean covers = region.getLowerX() <= minX && region.getUpperX() >= maxX && region.getLowerZ() <= minZ && region.getUpperZ() >= maxZ
+                    && region.getLowerY() <= world.getMinHeight() && region.getUpperY() >= world.getMaxHeight() - 1;
+            if (!covers) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Long getChunk(UUID uuid, String worldName, long key) {
+        Map<String, Map<Long, Long>> worlds = decisions.get(uuid);
+        if (worlds == null) {
+            return null;
+        }
+        Map<Long, Long> chunks = worlds.get(worldName);
+        return chunks == null ? null : chunks.get(key);
+    }
+
+    private void store(UUID uuid, String worldName, long key, long mask, long resolvedGeneration) {
+        Map<Long, Long> chunks = decisions.computeIfAbsent(uuid, id -> new ConcurrentHashMap<>())
+                .computeIfAbsent(worldName, name -> new ConcurrentHashMap<>());
+        if (chunks.size() >= maxChunksPerPlayer && !chunks.containsKey(key)) {
+            chunks.clear();
+        }
+        chunks.merge(key, mask, (a, b) -> a | b);
+        //an invalidation raced with the resolver, the decision may be based on the old state
+        if (generation.get() != resolvedGeneration) {
+            chunks.remove(key);
+        }
+    }
+
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    /**
+     * The outcome of a protection check.
+     */
+    public enum Decision {
+        /**
+         * Allowed anywhere in the chunk, the decision is cached. Only valid if every region intersecting the chunk column covers it completely,
+         * see {@link #isChunkUniform(Iterable, World, int, int)}.
+         */
+        ALLOW(true, true),
+        /**
+         * Denied anywhere in the chunk, the decision is cached. Only valid if every region intersecting the chunk column covers it completely,
+         * see {@link #isChunkUniform(Iterable, World, int, int)}.
+         */
+        DENY(false, true),
+        /**
+         * Allowed at this location only, for example because a region boundary runs through the chunk. Not cached.
+         */
+        ALLOW_HERE(true, false),
+        /**
+         * Denied at this location only, for example because a region boundary runs through the chunk. Not cached.
+         */
+        DENY_HERE(false, false);
+
+        private final boolean allowed;
+        private final boolean chunkWide;
+
+        Decision(boolean allowed, boolean chunkWide) {
+            this.allowed = allowed;
+            this.chunkWide = chunkWide;
+        }
+
+        /**
+         * @param allowed   whether the action is allowed
+         * @param chunkWide whether the decision holds for the whole chunk
+         * @return the matching decision
+         */
+        public static Decision of(boolean allowed, boolean chunkWide) {
+            if (chunkWide) {
+                return allowed ? ALLOW : DENY;
+            }
+            return allowed ? ALLOW_HERE : DENY_HERE;
+        }
+
+        public boolean isAllowed() {
+            return allowed;
+        }
+
+        public boolean isChunkWide() {
+            return chunkWide;
+        }
+    }
+
+    /**
+     * Resolves a decision from the regions at a location, only called on cache misses. A chunk wide decision may only be returned after
+     * checking every region intersecting the chunk column, not just the regions at the location.
+     *
+     * @param <A> the enum of actions
+     */
+    @FunctionalInterface
+    public interface Resolver<A extends Enum<A>> {
+        Decision resolve(Player player, Location location, A action);
+    }
+}
@@ -0,0 +1,142 @@
+package com.wonkglorg.utilitylib.schematic;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Minimal named binary tag helpers, only covers what is needed to stream schematic files.
+ */
+final class Nbt {
+    static final byte END = 0;
+    static final byte BYTE = 1;
+    static final byte SHORT = 2;
+    static final byte INT = 3;
+    static final byte LONG = 4;
+    static final byte FLOAT = 5;
+    static final byte DOUBLE = 6;
+    static final byte BYTE_ARRAY = 7;
+    static final byte STRING = 8;
+    static final byte LIST = 9;
+    static final byte COMPOUND = 10;
+    static final byte INT_ARRAY = 11;
+    static final byte LONG_ARRAY = 12;
+
+    private Nbt() {
+        //Utility class
+    }
+
+    static void writeHeader(DataOutput out, byte type, String name) throws IOException {
+        out.writeByte(type);
+        out.writeUTF(name);
+    }
+
+    static void writeInt(DataOutput out, String name, int value) throws IOException {
+        writeHeader(out, INT, name);
+        out.writeInt(value);
+    }
+
+    static void writeShort(DataOutput out, String name, int value) throws IOException {
+        writeHeader(out, SHORT, name);
+        out.writeShort(value);
+    }
+
+    static void writeIntArray(DataOutput out, String name, int... values) throws IOException {
+        writeHeader(out, INT_ARRAY, name);
+        out.writeInt(values.length);
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    static void writeEmptyList(DataOutput out, String name, byte elementType) throws IOException {
+        writeHeader(out, LIST, name);
+        out.writeByte(elementType);
+        out.writeInt(0);
+    }
+
+    /**
+     * Skips the payload of a tag of the given type.
+     */
+    static void skipPayload(DataInput in, byte type) throws IOException {
+        switch (type) {
+            case END -> {
+            }
+            case BYTE -> in.skipBytes(1);
+            case SHORT -> in.readShort();
+            case INT, FLOAT -> in.readInt();
+            case LONG, DOUBLE -> in.readLong();
+            case BYTE_ARRAY -> skipFully(in, in.readInt());
+            case STRING -> skipFully(in, in.readUnsignedShort());
+            case LIST -> {
+                byte elementType = in.readByte();
+                for (int i = in.readInt(); i > 0; i--) {
+                    skipPayload(in, elementType);
+                }
+            }
+            case COMPOUND -> {
+                byte entryType;
+                while ((entryType = in.readByte()) != END) {
+                    in.readUTF();
+                    skipPayload(in, entryType);
+                }
+            }
+            case INT_ARRAY -> skipFully(in, (long) in.readInt() * Integer.BYTES);
+            case LONG_ARRAY -> skipFully(in, (long) in.readInt() * Long.BYTES);
+            default -> throw new IOException("Unknown tag type " + type);
+        }
+    }
+
+    private static void skipFully(DataInput in, long amount) throws IOException {
+        while (amount > 0) {
+            int skipped = in.skipBytes((int) Math.min(amount, Integer.MAX_VALUE));
+            if (skipped <= 0) {
+                in.readByte();
+                skipped = 1;
+            }
+            amount -= skipped;
+        }
+    }
+
+    static void writeVarInt(OutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    static int varIntSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * @return the decoded value or -1 if the stream ended before the first byte
+     */
+    static int readVarInt(InputStream in) throws IOException {
+        int value = 0;
+        int shift = 0;
+        int read;
+        while ((read = in.read()) != -1) {
+            value |= (read & 0x7F) << shift;
+            if ((read & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+            if (shift > 28) {
+                throw new IOException("VarInt too long");
+            }
+        }
+        if (shift == 0) {
+            return -1;
+        }
+        throw new IOException("Truncated VarInt");
+    }
+}
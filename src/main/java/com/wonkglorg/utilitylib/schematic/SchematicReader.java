@@ -0,0 +1,349 @@
+package com.wonkglorg.utilitylib.schematic;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Lazy reader for Sponge schematic files (version 2 and 3, {@code .schem}).
+ * <p>
+ * Opening a schematic only reads its dimensions and palette, the block data is skipped. Blocks are streamed straight from the compressed file
+ * when they are needed, either through {@link #openBlocks()} or a {@link PasteJob}, so pasting a huge schematic never holds it in memory.
+ */
+@SuppressWarnings("unused")
+public final class SchematicReader {
+    private final Path file;
+    private int width, height, length;
+    private int[] offset = new int[3];
+    private String[] palette = new String[0];
+    private BlockData[] parsedPalette;
+    private boolean hasBlockData;
+
+    private SchematicReader(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Reads the dimensions and palette of a schematic file.
+     *
+     * @param file the schematic file
+     * @return the reader
+     * @throws IOException if the file can not be read or is not a schematic
+     */
+    public static SchematicReader open(Path file) throws IOException {
+        SchematicReader reader = new SchematicReader(file);
+        try (DataInputStream in = openStream(file)) {
+            reader.readHeader(in);
+        }
+        if (!reader.hasBlockData) {
+            throw new IOException(file + " does not contain block data");
+        }
+        return reader;
+    }
+
+    /**
+     * Opens a stream over the palette ids of all blocks, in schematic order (x first, then z, then y).
+     *
+     * @return the block stream, has to be closed
+     * @throws IOException if the file can not be read
+     */
+    public BlockStream openBlocks() throws IOException {
+        DataInputStream in = openStream(file);
+        try {
+            int size = seekBlockData(in);
+            return new BlockStream(in, size);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Creates a job pasting this schematic with its lower corner at the given location, blocks are read from disk while pasting.
+     *
+     * @param origin    the location of the lower corner
+     * @param pasteAir  whether air blocks of the schematic replace existing blocks
+     * @return the paste job, has to be closed if it is abandoned before it finished
+     * @throws IOException if the file can not be read
+     */
+    public PasteJob paste(Location origin, boolean pasteAir) throws IOException {
+        return new PasteJob(origin.getWorld(), origin.getBlockX(), origin.getBlockY(), origin.getBlockZ(), pasteAir, openBlocks());
+    }
+
+    /**
+     * Gets the parsed block data for a palette id. The palette is parsed on first use, has to be called on the main thread.
+     *
+     * @param id the palette id
+     * @return the block data
+     */
+    public BlockData getBlockData(int id) {
+        if (parsedPalette == null) {
+            parsedPalette = new BlockData[palette.length];
+        }
+        BlockData data = parsedPalette[id];
+        if (data == null) {
+            data = Bukkit.createBlockData(palette[id]);
+            parsedPalette[id] = data;
+        }
+        return data;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * @return the offset stored in the schematic
+     */
+    public int[] getOffset() {
+        return offset.clone();
+    }
+
+    /**
+     * @return the block data strings indexed by palette id
+     */
+    public String[] getPalette() {
+        return palette.clone();
+    }
+
+    /**
+     * @return the amount of blocks in the schematic
+     */
+    public long getTotalBlocks() {
+        return (long) width * height * length;
+    }
+
+    private static DataInputStream openStream(Path file) throws IOException {
+        return new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file), 1 << 16)));
+    }
+
+    private void readHeader(DataInputStream in) throws IOException {
+        if (in.readByte() != Nbt.COMPOUND) {
+            throw new IOException(file + " is not a schematic");
+        }
+        in.readUTF();
+        readCompound(in);
+    }
+
+    //reads the fields of a version 2 root, a version 3 wrapper or the version 3 "Blocks" compound
+    private void readCompound(DataInputStream in) throws IOException {
+        byte type;
+        while ((type = in.readByte()) != Nbt.END) {
+            String name = in.readUTF();
+            if (type == Nbt.COMPOUND && (name.equals("Schematic") || name.equals("Blocks"))) {
+                readCompound(in);
+            } else if (type == Nbt.SHORT && name.equals("Width")) {
+                width = in.readUnsignedShort();
+            } else if (type == Nbt.SHORT && name.equals("Height")) {
+                height = in.readUnsignedShort();
+            } else if (type == Nbt.SHORT && name.equals("Length")) {
+                length = in.readUnsignedShort();
+            } else if (type == Nbt.INT_ARRAY && name.equals("Offset")) {
+                int[] values = new int[in.readInt()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = in.readInt();
+                }
+                if (values.length == 3) {
+                    offset = values;
+                }
+            } else if (type == Nbt.COMPOUND && name.equals("Palette")) {
+                readPalette(in);
+            } else if (type == Nbt.BYTE_ARRAY && isBlockData(name)) {
+                hasBlockData = true;
+                Nbt.skipPayload(in, type);
+            } else {
+                Nbt.skipPayload(in, type);
+            }
+        }
+    }
+
+    private void readPalette(DataInputStream in) throws IOException {
+        List<String> names = new ArrayList<>();
+        List<Integer> ids = new ArrayList<>();
+        int max = -1;
+        byte type;
+        while ((type = in.readByte()) != Nbt.END) {
+            String name = in.readUTF();
+            if (type != Nbt.INT) {
+                Nbt.skipPayload(in, type);
+                continue;
+            }
+            int id = in.readInt();
+            if (id < 0) {
+                throw new IOException("Invalid palette id " + id + " for " + name);
+            }
+            names.add(name);
+            ids.add(id);
+            max = Math.max(max, id);
+        }
+        palette = new String[max + 1];
+        for (int i = 0; i < names.size(); i++) {
+            palette[ids.get(i)] = names.get(i);
+        }
+        //block ids index straight into the palette, a gap would only show up as a null once a block uses it
+        for (int id = 0; id < palette.length; id++) {
+            if (palette[id] == null) {
+                throw new IOException("Missing palette id " + id + ", highest id is " + (palette.length - 1));
+            }
+        }
+    }
+
+    //walks the same path as readCompound and stops right at the block data payload
+    private int seekBlockData(DataInputStream in) throws IOException {
+        in.readByte();
+        in.readUTF();
+        int size = seekBlockDataIn(in);
+        if (size < 0) {
+            throw new IOException(file + " does not contain block data");
+        }
+        return size;
+    }
+
+    private int seekBlockDataIn(DataInputStream in) throws IOException {
+        byte type;
+        while ((type = in.readByte()) != Nbt.END) {
+            String name = in.readUTF();
+            if (type == Nbt.COMPOUND && (name.equals("Schematic") || name.equals("Blocks"))) {
+                int size = seekBlockDataIn(in);
+                if (size >= 0) {
+                    return size;
+                }
+            } else if (type == Nbt.BYTE_ARRAY && isBlockData(name)) {
+                return in.readInt();
+            } else {
+                Nbt.skipPayload(in, type);
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isBlockData(String name) {
+        return name.equals("BlockData") || name.equals("Data");
+    }
+
+    /**
+     * Sequential stream over the palette ids of a schematic.
+     */
+    public final class BlockStream implements AutoCloseable {
+        private final InputStream in;
+        private long remainingBytes;
+        private long index;
+
+        private BlockStream(InputStream in, long size) {
+            this.in = in;
+            this.remainingBytes = size;
+        }
+
+        /**
+         * @return true if more blocks are available
+         */
+        public boolean hasNext() {
+            return index < getTotalBlocks() && remainingBytes > 0;
+        }
+
+        /**
+         * Reads the palette id of the next block.
+         *
+         * @return the palette id
+         * @throws IOException if the file can not be read or ends early
+         */
+        public int next() throws IOException {
+            int id = Nbt.readVarInt(in);
+            if (id < 0 || id >= palette.length) {
+                throw new IOException("Invalid palette id " + id + " at block " + index);
+            }
+            remainingBytes -= Nbt.varIntSize(id);
+            index++;
+            return id;
+        }
+
+        /**
+         * @return the index of the next block, in schematic order
+         */
+        public long getIndex() {
+            return index;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Pastes a schematic in bounded steps on the main thread while streaming its blocks from disk.
+     */
+    public final class PasteJob implements AutoCloseable {
+        private final World world;
+        private final int originX, originY, originZ;
+        private final boolean pasteAir;
+        private final BlockStream blocks;
+
+        private PasteJob(World world, int originX, int originY, int originZ, boolean pasteAir, BlockStream blocks) {
+            this.world = world;
+            this.originX = originX;
+            this.originY = originY;
+            this.originZ = originZ;
+            this.pasteAir = pasteAir;
+            this.blocks = blocks;
+        }
+
+        /**
+         * Pastes up to the given amount of blocks, has to be called on the main thread. The stream is closed once all blocks are pasted.
+         *
+         * @param maxBlocks the maximum amount of blocks to paste in this call
+         * @return true once all blocks are pasted
+         * @throws IOException if the file can not be read
+         */
+        public boolean pasteBlocks(int maxBlocks) throws IOException {
+            long planeSize = (long) width * length;
+            for (int i = 0; i < maxBlocks && blocks.hasNext(); i++) {
+                long index = blocks.getIndex();
+                BlockData data = getBlockData(blocks.next());
+                if (!pasteAir && data.getMaterial().isAir()) {
+                    continue;
+                }
+                int y = (int) (index / planeSize);
+                int z = (int) ((index % planeSize) / width);
+                int x = (int) (index % width);
+                world.getBlockAt(originX + x, originY + y, originZ + z).setBlockData(data, false);
+            }
+            if (blocks.hasNext()) {
+                return false;
+            }
+            blocks.close();
+            return true;
+        }
+
+        /**
+         * @return the amount of blocks processed so far
+         */
+        public long getProcessedBlocks() {
+            return blocks.getIndex();
+        }
+
+        @Override
+        public void close() throws IOException {
+            blocks.close();
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.wonkglorg.utilitylib.schematic;
+
+import com.wonkglorg.utilitylib.selection.Cuboid;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Incremental exporter of {@link Cuboid} contents to the Sponge schematic format (version 2, {@code .schem}).
+ * <p>
+ * Blocks are captured on the main thread in bounded steps with {@link #writeBlocks(int)}, every block is turned into its palette id right away
+ * and appended to a compressed temporary file, so only the palette is held in memory no matter how big the region is. {@link #finish()} then
+ * assembles the final gzip compressed schematic from the palette and the temporary file and does not need the main thread.
+ * <p>
+ * Block entities (container contents, sign text) are not exported.
+ */
+@SuppressWarnings("unused")
+public final class SchematicWriter implements AutoCloseable {
+    private static final int SCHEMATIC_VERSION = 2;
+
+    private final Path target;
+    private final Path blockFile;
+    private final World world;
+    private final int originX, originY, originZ;
+    private final int width, height, length;
+
+    private final Map<BlockData, Integer> stateIds = new HashMap<>();
+    private final Map<String, Integer> palette = new LinkedHashMap<>();
+    private final OutputStream blockOut;
+    private long blockBytes;
+    private long written;
+    private boolean finished;
+
+    /**
+     * Starts a new export of the given Cuboid, the target file is only created once {@link #finish()} is called.
+     *
+     * @param cuboid the region to export
+     * @param target the schematic file to write
+     * @throws IOException if the temporary file could not be created
+     * @throws IllegalArgumentException if the region is larger than 65535 blocks along any axis
+     */
+    public SchematicWriter(Cuboid cuboid, Path target) throws IOException {
+        this.target = target;
+        this.world = cuboid.getWorld();
+        this.originX = (int) cuboid.getLowerX();
+        this.originY = (int) cuboid.getLowerY();
+        this.originZ = (int) cuboid.getLowerZ();
+        this.width = (int) cuboid.getSizeX();
+        this.height = (int) cuboid.getSizeY();
+        this.length = (int) cuboid.getSizeZ();
+        if (width > 0xFFFF || height > 0xFFFF || length > 0xFFFF) {
+            throw new IllegalArgumentException("Schematics can not be larger than 65535 blocks along an axis");
+        }
+        Path parent = target.toAbsolutePath().getParent();
+        this.blockFile = Files.createTempFile(parent, target.getFileName().toString(), ".part");
+        this.blockOut = new BufferedOutputStream(new DeflaterOutputStream(Files.newOutputStream(blockFile)), 1 << 16);
+    }
+
+    /**
+     * Captures up to the given amount of blocks, has to be called on the main thread. Blocks are read in schematic order, x first, then z, then y.
+     *
+     * @param maxBlocks the maximum amount of blocks to capture in this call
+     * @return true once all blocks of the region are captured
+     * @throws IOException if the temporary file could not be written
+     */
+    public boolean writeBlocks(int maxBlocks) throws IOException {
+        long total = getTotalBlocks();
+        long end = Math.min(total, written + maxBlocks);
+        long planeSize = (long) width * length;
+        while (written < end) {
+            int y = (int) (written / planeSize);
+            int z = (int) ((written % planeSize) / width);
+            int x = (int) (written % width);
+            //finish the current row in one go without recomputing the position
+            int rowEnd = (int) Math.min(width, x + (end - written));
+            for (; x < rowEnd; x++) {
+                Nbt.writeVarInt(blockOut, paletteId(world.getBlockAt(originX + x, originY + y, originZ + z).getBlockData()));
+            }
+            written += rowEnd - (int) (written % width);
+        }
+        return written >= total;
+    }
+
+    /**
+     * Writes the schematic file, requires all blocks to be captured. Does not access the world and can be called from any thread.
+     *
+     * @throws IOException if the schematic could not be written
+     * @throws IllegalStateException if not all blocks were captured yet
+     */
+    public void finish() throws IOException {
+        if (written < getTotalBlocks()) {
+            throw new IllegalStateException("Only " + written + " of " + getTotalBlocks() + " blocks were captured");
+        }
+        if (finished) {
+            return;
+        }
+        finished = true;
+        blockOut.close();
+        if (blockBytes > Integer.MAX_VALUE) {
+            Files.deleteIfExists(blockFile);
+            throw new IOException("Block data exceeds the maximum byte array size of a schematic");
+        }
+
+        Path partial = target.resolveSibling(target.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(partial), 1 << 16)))) {
+            Nbt.writeHeader(out, Nbt.COMPOUND, "Schematic");
+            Nbt.writeInt(out, "Version", SCHEMATIC_VERSION);
+            Nbt.writeInt(out, "DataVersion", Bukkit.getUnsafe().getDataVersion());
+            Nbt.writeShort(out, "Width", width);
+            Nbt.writeShort(out, "Height", height);
+            Nbt.writeShort(out, "Length", length);
+            Nbt.writeIntArray(out, "Offset", 0, 0, 0);
+            Nbt.writeInt(out, "PaletteMax", palette.size());
+
+            Nbt.writeHeader(out, Nbt.COMPOUND, "Palette");
+            for (Map.Entry<String, Integer> entry : palette.entrySet()) {
+                Nbt.writeInt(out, entry.getKey(), entry.getValue());
+            }
+            out.writeByte(Nbt.END);
+
+            Nbt.writeHeader(out, Nbt.BYTE_ARRAY, "BlockData");
+            out.writeInt((int) blockBytes);
+            try (InputStream in = new InflaterInputStream(new BufferedInputStream(Files.newInputStream(blockFile)))) {
+                in.transferTo(out);
+            }
+            Nbt.writeEmptyList(out, "BlockEntities", Nbt.COMPOUND);
+            out.writeByte(Nbt.END);
+        } finally {
+            Files.deleteIfExists(blockFile);
+        }
+        Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * @return the amount of blocks captured so far
+     */
+    public long getWrittenBlocks() {
+        return written;
+    }
+
+    /**
+     * @return the amount of blocks in the exported region
+     */
+    public long getTotalBlocks() {
+        return (long) width * height * length;
+    }
+
+    /**
+     * Aborts an unfinished export and deletes its temporary file.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!finished) {
+            finished = true;
+            blockOut.close();
+            Files.deleteIfExists(blockFile);
+        }
+    }
+
+    private int paletteId(BlockData data) {
+        Integer id = stateIds.get(data);
+        if (id == null) {
+            id = palette.computeIfAbsent(data.getAsString(), key -> palette.size());
+            stateIds.put(data, id);
+        }
+        blockBytes += Nbt.varIntSize(id);
+        return id;
+    }
+}
@@ -1,3 +1,394 @@
 package com.wonkglorg.utilitylib.selection;
 
-public class Circle{}
\ No newline at end of file
+import org.bukkit.Location;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Spheres, ellipsoids and cylinders (along the Y axis), optionally hollow.
+ * <p>
+ * A block belongs to the shape if its offset from the center block satisfies {@code (dx/rx)^2 + (dy/ry)^2 + (dz/rz)^2 <= 1}. The half width of
+ * every (y, z) row is solved once when a shape of a given size is first created and the table is shared by all shapes of the same size, so
+ * containment is a table lookup and span iteration never visits blocks outside the shape or evaluates a square root.
+ */
+@SuppressWarnings("unused")
+public final class Circle implements Selection{
+	
+	/**
+	 * Shared row tables, dropped entirely if more than this many different sizes are in use.
+	 */
+	private static final int MAX_CACHED_PROFILES = 256;
+	private static final Map<String, Profile> PROFILES = new ConcurrentHashMap<>();
+	
+	private final String worldName;
+	private final int centerX, centerY, centerZ;
+	private final Profile profile;
+	private Cuboid boundingBox;
+	
+	private Circle(String worldName, int centerX, int centerY, int centerZ, Profile profile) {
+		this.worldName = worldName;
+		this.centerX = centerX;
+		this.centerY = centerY;
+		this.centerZ = centerZ;
+		this.profile = profile;
+	}
+	
+	/**
+	 * Construct a sphere in the given world name.
+	 *
+	 * @param worldName - The sphere's world name
+	 * @param centerX - X co-ordinate of the center block
+	 * @param centerY - Y co-ordinate of the center block
+	 * @param centerZ - Z co-ordinate of the center block
+	 * @param radius - The radius in blocks
+	 */
+	public static Circle sphere(String worldName, int centerX, int centerY, int centerZ, double radius) {
+		return ellipsoid(worldName, centerX, centerY, centerZ, radius, radius, radius);
+	}
+	
+	/**
+	 * Construct a sphere around the block of the given Location.
+	 *
+	 * @param center - The center of the sphere
+	 * @param radius - The radius in blocks
+	 */
+	public static Circle sphere(Location center, double radius) {
+		return sphere(center.getWorld().getName(), center.getBlockX(), center.getBlockY(), center.getBlockZ(), radius);
+	}
+	
+	/**
+	 * Construct an ellipsoid in the given world name.
+	 *
+	 * @param worldName - The ellipsoid's world name
+	 * @param centerX - X co-ordinate of the center block
+	 * @param centerY - Y co-ordinate of the center block
+	 * @param centerZ - Z co-ordinate of the center block
+	 * @param radiusX - The radius along the X axis
+	 * @param radiusY - The radius along the Y axis
+	 * @param radiusZ - The radius along the Z axis
+	 */
+	public static Circle ellipsoid(String worldName, int centerX, int centerY, int centerZ, double radiusX, double radiusY, double radiusZ) {
+		return new Circle(worldName, centerX, centerY, centerZ, Profile.get(radiusX, radiusY, radiusZ, 0, 0));
+	}
+	
+	/**
+	 * Construct an ellipsoid around the block of the given Location.
+	 *
+	 * @param center - The center of the ellipsoid
+	 * @param radiusX - The radius along the X axis
+	 * @param radiusY - The radius along the Y axis
+	 * @param radiusZ - The radius along the Z axis
+	 */
+	public static Circle ellipsoid(Location center, double radiusX, double radiusY, double radiusZ) {
+		return ellipsoid(center.getWorld().getName(), center.getBlockX(), center.getBlockY(), center.getBlockZ(), radiusX, radiusY, radiusZ);
+	}
+	
+	/**
+	 * Construct an upright cylinder with an elliptic base in the given world name.
+	 *
+	 * @param worldName - The cylinder's world name
+	 * @param centerX - X co-ordinate of the center of the base
+	 * @param baseY - Y co-ordinate of the lowest layer
+	 * @param centerZ - Z co-ordinate of the center of the base
+	 * @param radiusX - The radius along the X axis
+	 * @param radiusZ - The radius along the Z axis
+	 * @param height - The amount of layers
+	 */
+	public static Circle cylinder(String worldName, int centerX, int baseY, int centerZ, double radiusX, double radiusZ, int height) {
+		if(height <= 0){
+			throw new IllegalArgumentException("Height must be positive");
+		}
+		return new Circle(worldName, centerX, baseY, centerZ, Profile.get(radiusX, 0, radiusZ, 0, height));
+	}
+	
+	/**
+	 * Construct an upright cylinder in the given world name.
+	 *
+	 * @param worldName - The cylinder's world name
+	 * @param centerX - X co-ordinate of the center of the base
+	 * @param baseY - Y co-ordinate of the lowest layer
+	 * @param centerZ - Z co-ordinate of the center of the base
+	 * @param radius - The radius of the base
+	 * @param height - The amount of layers
+	 */
+	public static Circle cylinder(String worldName, int centerX, int baseY, int centerZ, double radius, int height) {
+		return cylinder(worldName, centerX, baseY, centerZ, radius, radius, height);
+	}
+	
+	/**
+	 * Construct an upright cylinder standing on the block of the given Location.
+	 *
+	 * @param base - The center of the lowest layer
+	 * @param radius - The radius of the base
+	 * @param height - The amount of layers
+	 */
+	public static Circle cylinder(Location base, double radius, int height) {
+		return cylinder(base.getWorld().getName(), base.getBlockX(), base.getBlockY(), base.getBlockZ(), radius, radius, height);
+	}
+	
+	/**
+	 * Get a hollow version of this shape. Blocks inside the same shape shrunk by the thickness are excluded, a hollow cylinder is a tube
+	 * without top and bottom.
+	 *
+	 * @param thickness - The wall thickness in blocks
+	 * @return the hollow shape
+	 */
+	public Circle hollow(double thickness) {
+		if(thickness <= 0){
+			throw new IllegalArgumentException("Thickness must be positive");
+		}
+		return new Circle(worldName, centerX, centerY, centerZ, Profile.get(profile.radiusX, profile.radiusY, profile.radiusZ, thickness, profile.height));
+	}
+	
+	/**
+	 * Get the same shape moved to another center, the row table is shared.
+	 *
+	 * @param location - The new center, for cylinders the center of the lowest layer
+	 * @return the moved shape
+	 */
+	public Circle moveTo(Location location) {
+		return new Circle(location.getWorld().getName(), location.getBlockX(), location.getBlockY(), location.getBlockZ(), profile);
+	}
+	
+	@Override
+	public String getWorldName() {
+		return worldName;
+	}
+	
+	@Override
+	public Cuboid getBoundingBox() {
+		if(boundingBox == null){
+			boundingBox = Cuboid.create(worldName, centerX - profile.reachX, getMinY(), centerZ - profile.reachZ, centerX + profile.reachX, getMaxY(),
+					centerZ + profile.reachZ);
+		}
+		return boundingBox;
+	}
+	
+	@Override
+	public boolean contains(int x, int y, int z) {
+		int row = rowIndex(y, z);
+		if(row < 0){
+			return false;
+		}
+		int dx = Math.abs(x - centerX);
+		return dx <= profile.outer[row] && dx > profile.inner[row];
+	}
+	
+	@Override
+	public double getVolume() {
+		return profile.volume;
+	}
+	
+	@Override
+	public void forEachSpan(int y, int z, SpanConsumer consumer) {
+		int row = rowIndex(y, z);
+		if(row >= 0){
+			emitRow(y, z, row, consumer);
+		}
+	}
+	
+	@Override
+	public void forEachSpan(SpanConsumer consumer) {
+		int minY = getMinY();
+		int maxY = getMaxY();
+		int sizeZ = profile.sizeZ;
+		for(int y = minY; y <= maxY; y++){
+			int rowOffset = profile.isCylinder() ? 0 : (y - minY) * sizeZ;
+			for(int i = 0; i < sizeZ; i++){
+				emitRow(y, centerZ - profile.reachZ + i, rowOffset + i, consumer);
+			}
+		}
+	}
+	
+	private void emitRow(int y, int z, int row, SpanConsumer consumer) {
+		int outer = profile.outer[row];
+		if(outer < 0){
+			return;
+		}
+		int inner = profile.inner[row];
+		if(inner < 0){
+			consumer.accept(y, z, centerX - outer, centerX + outer);
+			return;
+		}
+		if(inner >= outer){
+			return;
+		}
+		consumer.accept(y, z, centerX - outer, centerX - inner - 1);
+		consumer.accept(y, z, centerX + inner + 1, centerX + outer);
+	}
+	
+	/**
+	 * @return the index of the row in the profile tables or -1 if the row is outside of the bounding box
+	 */
+	private int rowIndex(int y, int z) {
+		int zi = z - centerZ + profile.reachZ;
+		if(zi < 0 || zi >= profile.sizeZ || y < getMinY() || y > getMaxY()){
+			return -1;
+		}
+		return profile.isCylinder() ? zi : (y - getMinY()) * profile.sizeZ + zi;
+	}
+	
+	private int getMinY() {
+		return profile.isCylinder() ? centerY : centerY - profile.reachY;
+	}
+	
+	private int getMaxY() {
+		return profile.isCylinder() ? centerY + profile.height - 1 : centerY + profile.reachY;
+	}
+	
+	public int getCenterX() {
+		return centerX;
+	}
+	
+	/**
+	 * @return the Y co-ordinate of the center block, for cylinders the lowest layer
+	 */
+	public int getCenterY() {
+		return centerY;
+	}
+	
+	public int getCenterZ() {
+		return centerZ;
+	}
+	
+	public double getRadiusX() {
+		return profile.radiusX;
+	}
+	
+	/**
+	 * @return the radius along the Y axis, 0 for cylinders
+	 */
+	public double getRadiusY() {
+		return profile.radiusY;
+	}
+	
+	public double getRadiusZ() {
+		return profile.radiusZ;
+	}
+	
+	/**
+	 * @return the amount of layers of a cylinder, 0 for ellipsoids
+	 */
+	public int getHeight() {
+		return profile.height;
+	}
+	
+	/**
+	 * @return the wall thickness, 0 if this shape is solid
+	 */
+	public double getThickness() {
+		return profile.thickness;
+	}
+	
+	public boolean isHollow() {
+		return profile.thickness > 0;
+	}
+	
+	public boolean isCylinder() {
+		return profile.isCylinder();
+	}
+	
+	@Override
+	public String toString() {
+		return "Circle{" + (isCylinder() ? "cylinder" : "ellipsoid") + ", world=" + worldName + ", center=" + centerX + "," + centerY + "," + centerZ
+				+ ", radius=" + profile.radiusX + "," + profile.radiusY + "," + profile.radiusZ + (isCylinder() ? ", height=" + profile.height : "")
+				+ (isHollow() ? ", thickness=" + profile.thickness : "") + "}";
+	}
+	
+	/**
+	 * Row table of one shape size, independent of the position.
+	 */
+	private static final class Profile{
+		private final double radiusX, radiusY, radiusZ, thickness;
+		private final int height;
+		private final int reachX, reachY, reachZ, sizeZ;
+		/**
+		 * Largest |dx| inside the outer shape per row, -1 if the row is empty.
+		 */
+		private final int[] outer;
+		/**
+		 * Largest |dx| inside the inner (excluded) shape per row, -1 if nothing is excluded.
+		 */
+		private final int[] inner;
+		private final long volume;
+		
+		private Profile(double radiusX, double radiusY, double radiusZ, double thickness, int height) {
+			if(radiusX < 0 || radiusY < 0 || radiusZ < 0){
+				throw new IllegalArgumentException("Radius must not be negative");
+			}
+			this.radiusX = radiusX;
+			this.radiusY = radiusY;
+			this.radiusZ = radiusZ;
+			this.thickness = thickness;
+			this.height = height;
+			this.reachY = isCylinder() ? 0 : (int) radiusY;
+			this.reachZ = (int) radiusZ;
+			this.sizeZ = 2 * reachZ + 1;
+			int rowsY = isCylinder() ? 1 : 2 * reachY + 1;
+			this.outer = new int[rowsY * sizeZ];
+			this.inner = new int[rowsY * sizeZ];
+			
+			double innerX = radiusX - thickness;
+			double innerY = isCylinder() ? 0 : radiusY - thickness;
+			double innerZ = radiusZ - thickness;
+			boolean hasInner = thickness > 0 && innerX > 0 && innerZ > 0 && (isCylinder() || innerY > 0);
+			
+			int maxReach = 0;
+			long area = 0;
+			for(int yi = 0; yi < rowsY; yi++){
+				int dy = yi - reachY;
+				for(int zi = 0; zi < sizeZ; zi++){
+					int dz = zi - reachZ;
+					int row = yi * sizeZ + zi;
+					outer[row] = halfWidth(radiusX, 1 - term(dy, radiusY) - term(dz, radiusZ));
+					inner[row] = hasInner ? Math.min(outer[row], halfWidth(innerX, 1 - term(dy, innerY) - term(dz, innerZ))) : -1;
+					maxReach = Math.max(maxReach, outer[row]);
+					area += (outer[row] < 0 ? 0 : 2L * outer[row] + 1) - (inner[row] < 0 ? 0 : 2L * inner[row] + 1);
+				}
+			}
+			this.reachX = maxReach;
+			this.volume = isCylinder() ? area * height : area;
+		}
+		
+		private static Profile get(double radiusX, double radiusY, double radiusZ, double thickness, int height) {
+			String key = radiusX + ":" + radiusY + ":" + radiusZ + ":" + thickness + ":" + height;
+			Profile profile = PROFILES.get(key);
+			if(profile == null){
+				if(PROFILES.size() >= MAX_CACHED_PROFILES){
+					PROFILES.clear();
+				}
+				profile = PROFILES.computeIfAbsent(key, k -> new Profile(radiusX, radiusY, radiusZ, thickness, height));
+			}
+			return profile;
+		}
+		
+		private boolean isCylinder() {
+			return height > 0;
+		}
+		
+		//squared normalized distance along one axis, a radius of 0 only allows the center
+		private static double term(int d, double radius) {
+			if(radius == 0){
+				return d == 0 ? 0 : Double.POSITIVE_INFINITY;
+			}
+			return ((double) d * d) / (radius * radius);
+		}
+		
+		//largest d with (d / radius)^2 <= remaining, -1 if there is none
+		private static int halfWidth(double radius, double remaining) {
+			if(remaining < 0){
+				return -1;
+			}
+			double limit = remaining * radius * radius;
+			int d = (int) Math.sqrt(limit);
+			while((long) (d + 1) * (d + 1) <= limit){
+				d++;
+			}
+			while(d > 0 && (long) d * d > limit){
+				d--;
+			}
+			return d;
+		}
+	}
+}
@@ -0,0 +1,326 @@
+package com.wonkglorg.utilitylib.selection;
+
+import java.util.Arrays;
+
+/**
+ * Lazily evaluated combination of two selections, nothing is materialised per block.
+ * <p>
+ * The bounding box is combined up front and every containment test checks the bounding boxes before asking the parts. Rows are produced by
+ * collecting the spans of both parts for that row and sweeping over their boundaries, so iteration costs about as much as iterating the parts
+ * and composites can be nested freely.
+ */
+@SuppressWarnings("unused")
+public final class CompositeSelection implements Selection{
+	
+	private final Operation operation;
+	private final Selection first, second;
+	private final String worldName;
+	private final int firstMinX, firstMinY, firstMinZ, firstMaxX, firstMaxY, firstMaxZ;
+	private final int secondMinX, secondMinY, secondMinZ, secondMaxX, secondMaxY, secondMaxZ;
+	private final int minX, minY, minZ, maxX, maxY, maxZ;
+	/**
+	 * True if the combination can not contain any block, for example the intersection of two disjoint selections.
+	 */
+	private final boolean empty;
+	/**
+	 * Row buffers for both parts, per thread so composites can be iterated concurrently.
+	 */
+	private final ThreadLocal<SpanList[]> buffers = ThreadLocal.withInitial(() -> new SpanList[]{new SpanList(), new SpanList()});
+	private Cuboid boundingBox;
+	private double volume = -1;
+	
+	private CompositeSelection(Operation operation, Selection first, Selection second) {
+		if(!first.getWorldName().equals(second.getWorldName())){
+			throw new IllegalArgumentException("Selections must be in the same world, got " + first.getWorldName() + " and " + second.getWorldName());
+		}
+		this.operation = operation;
+		this.first = first;
+		this.second = second;
+		this.worldName = first.getWorldName();
+		
+		Cuboid a = first.getBoundingBox();
+		Cuboid b = second.getBoundingBox();
+		this.firstMinX = (int) a.getLowerX();
+		this.firstMinY = (int) a.getLowerY();
+		this.firstMinZ = (int) a.getLowerZ();
+		this.firstMaxX = (int) a.getUpperX();
+		this.firstMaxY = (int) a.getUpperY();
+		this.firstMaxZ = (int) a.getUpperZ();
+		this.secondMinX = (int) b.getLowerX();
+		this.secondMinY = (int) b.getLowerY();
+		this.secondMinZ = (int) b.getLowerZ();
+		this.secondMaxX = (int) b.getUpperX();
+		this.secondMaxY = (int) b.getUpperY();
+		this.secondMaxZ = (int) b.getUpperZ();
+		
+		boolean overlapping = firstMinX <= secondMaxX && firstMaxX >= secondMinX && firstMinY <= secondMaxY && firstMaxY >= secondMinY
+				&& firstMinZ <= secondMaxZ && firstMaxZ >= secondMinZ;
+		if(operation == Operation.INTERSECTION && overlapping){
+			minX = Math.max(firstMinX, secondMinX);
+			minY = Math.max(firstMinY, secondMinY);
+			minZ = Math.max(firstMinZ, secondMinZ);
+			maxX = Math.min(firstMaxX, secondMaxX);
+			maxY = Math.min(firstMaxY, secondMaxY);
+			maxZ = Math.min(firstMaxZ, secondMaxZ);
+		} else if(operation == Operation.INTERSECTION || operation == Operation.DIFFERENCE){
+			minX = firstMinX;
+			minY = firstMinY;
+			minZ = firstMinZ;
+			maxX = firstMaxX;
+			maxY = firstMaxY;
+			maxZ = firstMaxZ;
+		} else {
+			minX = Math.min(firstMinX, secondMinX);
+			minY = Math.min(firstMinY, secondMinY);
+			minZ = Math.min(firstMinZ, secondMinZ);
+			maxX = Math.max(firstMaxX, secondMaxX);
+			maxY = Math.max(firstMaxY, secondMaxY);
+			maxZ = Math.max(firstMaxZ, secondMaxZ);
+		}
+		this.empty = operation == Operation.INTERSECTION && !overlapping;
+	}
+	
+	/**
+	 * Construct the union of two selections, every block in either of them.
+	 *
+	 * @param first - The first selection
+	 * @param second - The second selection
+	 */
+	public static CompositeSelection union(Selection first, Selection second) {
+		return new CompositeSelection(Operation.UNION, first, second);
+	}
+	
+	/**
+	 * Construct the intersection of two selections, every block in both of them.
+	 *
+	 * @param first - The first selection
+	 * @param second - The second selection
+	 */
+	public static CompositeSelection intersection(Selection first, Selection second) {
+		return new CompositeSelection(Operation.INTERSECTION, first, second);
+	}
+	
+	/**
+	 * Construct the difference of two selections, every block in the first but not in the second.
+	 *
+	 * @param first - The selection to subtract from
+	 * @param second - The selection to subtract
+	 */
+	public static CompositeSelection difference(Selection first, Selection second) {
+		return new CompositeSelection(Operation.DIFFERENCE, first, second);
+	}
+	
+	/**
+	 * Construct the symmetric difference of two selections, every block in exactly one of them.
+	 *
+	 * @param first - The first selection
+	 * @param second - The second selection
+	 */
+	public static CompositeSelection xor(Selection first, Selection second) {
+		return new CompositeSelection(Operation.XOR, first, second);
+	}
+	
+	@Override
+	public String getWorldName() {
+		return worldName;
+	}
+	
+	/**
+	 * Get the combined bounding box. The intersection of two selections with disjoint bounding boxes is empty, its bounding box is the one of
+	 * the first selection.
+	 *
+	 * @return the bounding box
+	 */
+	@Override
+	public Cuboid getBoundingBox() {
+		if(boundingBox == null){
+			boundingBox = Cuboid.create(worldName, minX, minY, minZ, maxX, maxY, maxZ);
+		}
+		return boundingBox;
+	}
+	
+	@Override
+	public boolean contains(int x, int y, int z) {
+		if(empty || x < minX || x > maxX || y < minY || y > maxY || z < minZ || z > maxZ){
+			return false;
+		}
+		boolean inFirst = inFirstBox(x, y, z) && first.contains(x, y, z);
+		return switch(operation) {
+			case UNION -> inFirst || (inSecondBox(x, y, z) && second.contains(x, y, z));
+			case INTERSECTION -> inFirst && inSecondBox(x, y, z) && second.contains(x, y, z);
+			case DIFFERENCE -> inFirst && !(inSecondBox(x, y, z) && second.contains(x, y, z));
+			case XOR -> inFirst != (inSecondBox(x, y, z) && second.contains(x, y, z));
+		};
+	}
+	
+	/**
+	 * Get the volume of this selection. There is no closed form for combined shapes, the spans are counted on the first call and the result
+	 * is cached.
+	 *
+	 * @return The amount of blocks in this selection
+	 */
+	@Override
+	public double getVolume() {
+		if(volume < 0){
+			double[] total = {0};
+			forEachSpan((y, z, xStart, xEnd) -> total[0] += xEnd - xStart + 1);
+			volume = total[0];
+		}
+		return volume;
+	}
+	
+	@Override
+	public void forEachSpan(int y, int z, SpanConsumer consumer) {
+		if(empty || y < minY || y > maxY || z < minZ || z > maxZ){
+			return;
+		}
+		boolean firstRow = y >= firstMinY && y <= firstMaxY && z >= firstMinZ && z <= firstMaxZ;
+		boolean secondRow = y >= secondMinY && y <= secondMaxY && z >= secondMinZ && z <= secondMaxZ;
+		//rows only one part reaches need no merging
+		switch(operation) {
+			case UNION, XOR -> {
+				if(!secondRow){
+					first.forEachSpan(y, z, consumer);
+					return;
+				}
+				if(!firstRow){
+					second.forEachSpan(y, z, consumer);
+					return;
+				}
+			}
+			case INTERSECTION -> {
+				if(!firstRow || !secondRow){
+					return;
+				}
+			}
+			case DIFFERENCE -> {
+				if(!firstRow){
+					return;
+				}
+				if(!secondRow){
+					first.forEachSpan(y, z, consumer);
+					return;
+				}
+			}
+		}
+		
+		SpanList[] lists = buffers.get();
+		SpanList a = lists[0];
+		SpanList b = lists[1];
+		a.clear();
+		b.clear();
+		first.forEachSpan(y, z, a);
+		second.forEachSpan(y, z, b);
+		sweep(y, z, a, b, consumer);
+	}
+	
+	@Override
+	public void forEachSpan(SpanConsumer consumer) {
+		if(empty){
+			return;
+		}
+		Selection.super.forEachSpan(consumer);
+	}
+	
+	/**
+	 * Walks over the span boundaries of both rows in ascending order and emits the ranges where the operation holds, adjacent ranges are
+	 * emitted as one span.
+	 */
+	private void sweep(int y, int z, SpanList a, SpanList b, SpanConsumer consumer) {
+		int boundariesA = a.size * 2;
+		int boundariesB = b.size * 2;
+		int i = 0;
+		int j = 0;
+		boolean inA = false;
+		boolean inB = false;
+		boolean inside = false;
+		long start = 0;
+		while(i < boundariesA || j < boundariesB){
+			long position = Math.min(i < boundariesA ? a.boundary(i) : Long.MAX_VALUE, j < boundariesB ? b.boundary(j) : Long.MAX_VALUE);
+			while(i < boundariesA && a.boundary(i) == position){
+				inA = !inA;
+				i++;
+			}
+			while(j < boundariesB && b.boundary(j) == position){
+				inB = !inB;
+				j++;
+			}
+			boolean now = operation.test(inA, inB);
+			if(now && !inside){
+				start = position;
+				inside = true;
+			} else if(!now && inside){
+				consumer.accept(y, z, (int) start, (int) (position - 1));
+				inside = false;
+			}
+		}
+	}
+	
+	private boolean inFirstBox(int x, int y, int z) {
+		return x >= firstMinX && x <= firstMaxX && y >= firstMinY && y <= firstMaxY && z >= firstMinZ && z <= firstMaxZ;
+	}
+	
+	private boolean inSecondBox(int x, int y, int z) {
+		return x >= secondMinX && x <= secondMaxX && y >= secondMinY && y <= secondMaxY && z >= secondMinZ && z <= secondMaxZ;
+	}
+	
+	public Operation getOperation() {
+		return operation;
+	}
+	
+	public Selection getFirst() {
+		return first;
+	}
+	
+	public Selection getSecond() {
+		return second;
+	}
+	
+	@Override
+	public String toString() {
+		return "CompositeSelection{" + operation + ", " + first + ", " + second + "}";
+	}
+	
+	public enum Operation{
+		UNION,
+		INTERSECTION,
+		DIFFERENCE,
+		XOR;
+		
+		private boolean test(boolean inFirst, boolean inSecond) {
+			return switch(this) {
+				case UNION -> inFirst || inSecond;
+				case INTERSECTION -> inFirst && inSecond;
+				case DIFFERENCE -> inFirst && !inSecond;
+				case XOR -> inFirst != inSecond;
+			};
+		}
+	}
+	
+	/**
+	 * Growable list of the spans of one row.
+	 */
+	private static final class SpanList implements SpanConsumer{
+		private int[] spans = new int[16];
+		private int size;
+		
+		@Override
+		public void accept(int y, int z, int xStart, int xEnd) {
+			if(size * 2 == spans.length){
+				spans = Arrays.copyOf(spans, spans.length * 2);
+			}
+			spans[size * 2] = xStart;
+			spans[size * 2 + 1] = xEnd;
+			size++;
+		}
+		
+		//even indices are span starts, odd indices the first X after a span
+		private long boundary(int index) {
+			return (index & 1) == 0 ? spans[index] : spans[index] + 1L;
+		}
+		
+		private void clear() {
+			size = 0;
+		}
+	}
+}
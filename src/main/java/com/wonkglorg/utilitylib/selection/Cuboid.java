@@ -14,6 +14,7 @@ import org.jetbrains.annotations.NotNull;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -21,7 +22,7 @@ import java.util.Map;
 import java.util.Objects;
 
 @SuppressWarnings("unused")
-public final class Cuboid implements Iterable<Block>, Cloneable, ConfigurationSerializable, Serializable{
+public final class Cuboid implements Selection, Iterable<Block>, Cloneable, ConfigurationSerializable, Serializable{
 	
 	/**
 	 * This class is a region/cuboid from one location to another. It can be used for blocks protection and things like WorldEdit.
@@ -141,12 +142,12 @@ public final class Cuboid implements Iterable<Block>, Cloneable, ConfigurationSe
 	 */
 	public static Cuboid create(Map<String, Object> map) {
 		String worldName = (String) map.get("worldName");
-		double x1 = (Integer) map.get("x1");
-		double x2 = (Integer) map.get("x2");
-		double y1 = (Integer) map.get("y1");
-		double y2 = (Integer) map.get("y2");
-		double z1 = (Integer) map.get("z1");
-		double z2 = (Integer) map.get("z2");
+		double x1 = ((Number) map.get("x1")).doubleValue();
+		double x2 = ((Number) map.get("x2")).doubleValue();
+		double y1 = ((Number) map.get("y1")).doubleValue();
+		double y2 = ((Number) map.get("y2")).doubleValue();
+		double z1 = ((Number) map.get("z1")).doubleValue();
+		double z2 = ((Number) map.get("z2")).doubleValue();
 		
 		return new Cuboid(worldName, (int) x1, (int) y1, (int) z1, (int) x2, (int) y2, (int) z2);
 	}
@@ -214,6 +215,7 @@ public final class Cuboid implements Iterable<Block>, Cloneable, ConfigurationSe
 	 * @return The World object representing this Cuboid's world
 	 * @throws IllegalStateException if the world is not loaded
 	 */
+	@Override
 	public World getWorld() {
 		World world = Bukkit.getWorld(this.worldName);
 		if(world == null){
@@ -222,6 +224,26 @@ public final class Cuboid implements Iterable<Block>, Cloneable, ConfigurationSe
 		return world;
 	}
 	
+	/**
+	 * Get the Cuboid's world name.
+	 *
+	 * @return The name of this Cuboid's world
+	 */
+	@Override
+	public String getWorldName() {
+		return this.worldName;
+	}
+	
+	/**
+	 * A Cuboid is its own bounding box.
+	 *
+	 * @return this Cuboid
+	 */
+	@Override
+	public Cuboid getBoundingBox() {
+		return this;
+	}
+	
 	/**
 	 * Get the size of this Cuboid along the X axis
 	 *
@@ -462,6 +484,7 @@ public final class Cuboid implements Iterable<Block>, Cloneable, ConfigurationSe
 	 * @param z - The Z co-ordinate
 	 * @return true if the given point is within this Cuboid, false otherwise
 	 */
+	@Override
 	public boolean contains(int x, int y, int z) {
 		return x >= this.x1 && x <= this.x2 && y >= this.y1 && y <= this.y2 && z >= this.z1 && z <= this.z2;
 	}
@@ -472,6 +495,7 @@ public final class Cuboid implements Iterable<Block>, Cloneable, ConfigurationSe
 	 * @param b - The Block to check for
 	 * @return true if the Block is within this Cuboid, false otherwise
 	 */
+	@Override
 	public boolean contains(Block b) {
 		return this.contains(b.getLocation());
 	}
@@ -482,6 +506,7 @@ public final class Cuboid implements Iterable<Block>, Cloneable, ConfigurationSe
 	 * @param location - The Location to check for
 	 * @return true if the Location is within this Cuboid, false otherwise
 	 */
+	@Override
 	public boolean contains(Location location) {
 		if(!this.worldName.equals(location.getWorld().getName())){
 			return false;
@@ -494,10 +519,36 @@ public final class Cuboid implements Iterable<Block>, Cloneable, ConfigurationSe
 	 *
 	 * @return The Cuboid volume, in blocks
 	 */
+	@Override
 	public double getVolume() {
 		return this.getSizeX() * this.getSizeY() * this.getSizeZ();
 	}
 	
+	/**
+	 * Every row of a Cuboid is a single span from its lower to its upper X co-ordinate.
+	 *
+	 * @param y - The Y co-ordinate of the row
+	 * @param z - The Z co-ordinate of the row
+	 * @param consumer - Receives the span of the row
+	 */
+	@Override
+	public void forEachSpan(int y, int z, SpanConsumer consumer) {
+		if(y >= this.y1 && y <= this.y2 && z >= this.z1 && z <= this.z2){
+			consumer.accept(y, z, (int) this.x1, (int) this.x2);
+		}
+	}
+	
+	@Override
+	public void forEachSpan(SpanConsumer consumer) {
+		int xStart = (int) this.x1;
+		int xEnd = (int) this.x2;
+		for(int y = (int) this.y1; y <= this.y2; y++){
+			for(int z = (int) this.z1; z <= this.z2; z++){
+				consumer.accept(y, z, xStart, xEnd);
+			}
+		}
+	}
+	
 	/**
 	 * Get the average light level of all empty (air) blocks in the Cuboid. Returns 0 if there are no empty blocks.
 	 *
@@ -661,6 +712,191 @@ public final class Cuboid implements Iterable<Block>, Cloneable, ConfigurationSe
 		return (squaredDistance != null) ? Math.sqrt(squaredDistance) : null;
 	}
 	
+	/**
+	 * Intersects a ray with this Cuboid using the slab method. The Cuboid is treated as the full volume of its blocks, from the lower corner to
+	 * the far side of the upper corner block.
+	 *
+	 * @param originX - X co-ordinate of the ray origin
+	 * @param originY - Y co-ordinate of the ray origin
+	 * @param originZ - Z co-ordinate of the ray origin
+	 * @param dirX - X component of the ray direction
+	 * @param dirY - Y component of the ray direction
+	 * @param dirZ - Z component of the ray direction
+	 * @param maxDistance - The maximum distance along the ray, in blocks
+	 * @return The intersection with entry and exit distance in blocks or null if the ray misses this Cuboid
+	 */
+	public RayIntersection intersectRay(double originX, double originY, double originZ, double dirX, double dirY, double dirZ, double maxDistance) {
+		double length = Math.sqrt(dirX * dirX + dirY * dirY + dirZ * dirZ);
+		if(length == 0){
+			throw new IllegalArgumentException("Ray direction must not be zero");
+		}
+		double invX = length / dirX, invY = length / dirY, invZ = length / dirZ;
+		double entry = slabEntry(originX, originY, originZ, invX, invY, invZ, maxDistance);
+		if(Double.isNaN(entry)){
+			return null;
+		}
+		return new RayIntersection(this, entry, slabExit(originX, originY, originZ, invX, invY, invZ, maxDistance));
+	}
+	
+	/**
+	 * Intersects a ray with this Cuboid using the slab method.
+	 *
+	 * @param origin - The ray origin
+	 * @param direction - The ray direction
+	 * @param maxDistance - The maximum distance along the ray, in blocks
+	 * @return The intersection or null if the ray misses this Cuboid
+	 */
+	public RayIntersection intersectRay(Vector origin, Vector direction, double maxDistance) {
+		return intersectRay(origin.getX(), origin.getY(), origin.getZ(), direction.getX(), direction.getY(), direction.getZ(), maxDistance);
+	}
+	
+	/**
+	 * Intersects a ray with this Cuboid using the slab method.
+	 *
+	 * @param origin - The ray origin
+	 * @param direction - The ray direction
+	 * @param maxDistance - The maximum distance along the ray, in blocks
+	 * @return The intersection or null if the ray misses this Cuboid or starts in a different world
+	 */
+	public RayIntersection intersectRay(Location origin, Vector direction, double maxDistance) {
+		if(origin.getWorld() == null || !this.worldName.equals(origin.getWorld().getName())){
+			return null;
+		}
+		return intersectRay(origin.getX(), origin.getY(), origin.getZ(), direction.getX(), direction.getY(), direction.getZ(), maxDistance);
+	}
+	
+	/**
+	 * Intersects the line segment between two points with this Cuboid. Distances are measured in blocks from the start point.
+	 *
+	 * @param from - The start of the segment
+	 * @param to - The end of the segment
+	 * @return The intersection or null if the segment does not touch this Cuboid
+	 */
+	public RayIntersection intersectSegment(Vector from, Vector to) {
+		double dirX = to.getX() - from.getX();
+		double dirY = to.getY() - from.getY();
+		double dirZ = to.getZ() - from.getZ();
+		double length = Math.sqrt(dirX * dirX + dirY * dirY + dirZ * dirZ);
+		if(length == 0){
+			boolean inside = this.contains(from.getBlockX(), from.getBlockY(), from.getBlockZ());
+			return inside ? new RayIntersection(this, 0, 0) : null;
+		}
+		return intersectRay(from.getX(), from.getY(), from.getZ(), dirX, dirY, dirZ, length);
+	}
+	
+	/**
+	 * Intersects the line segment between two Locations with this Cuboid.
+	 *
+	 * @param from - The start of the segment
+	 * @param to - The end of the segment
+	 * @return The intersection or null if the segment does not touch this Cuboid or is in a different world
+	 */
+	public RayIntersection intersectSegment(Location from, Location to) {
+		if(from.getWorld() == null || !this.worldName.equals(from.getWorld().getName())){
+			return null;
+		}
+		return intersectSegment(from.toVector(), to.toVector());
+	}
+	
+	/**
+	 * Tests one ray against a whole collection of Cuboids and returns the closest hit. Only plain arithmetic runs per Cuboid, an intersection
+	 * object is created for the nearest hit alone. Cuboids in a different world than the origin are skipped.
+	 *
+	 * @param cuboids - The Cuboids to test
+	 * @param origin - The ray origin
+	 * @param direction - The ray direction
+	 * @param maxDistance - The maximum distance along the ray, in blocks
+	 * @return The nearest intersection or null if no Cuboid is hit
+	 */
+	public static RayIntersection nearestHit(Collection<Cuboid> cuboids, Location origin, Vector direction, double maxDistance) {
+		if(origin.getWorld() == null){
+			return null;
+		}
+		String world = origin.getWorld().getName();
+		double originX = origin.getX(), originY = origin.getY(), originZ = origin.getZ();
+		double dirX = direction.getX(), dirY = direction.getY(), dirZ = direction.getZ();
+		double length = Math.sqrt(dirX * dirX + dirY * dirY + dirZ * dirZ);
+		if(length == 0){
+			throw new IllegalArgumentException("Ray direction must not be zero");
+		}
+		double invX = length / dirX, invY = length / dirY, invZ = length / dirZ;
+		
+		Cuboid nearest = null;
+		double nearestEntry = maxDistance;
+		for(Cuboid cuboid : cuboids){
+			if(!cuboid.worldName.equals(world)){
+				continue;
+			}
+			double entry = cuboid.slabEntry(originX, originY, originZ, invX, invY, invZ, nearestEntry);
+			if(!Double.isNaN(entry) && (nearest == null || entry < nearestEntry)){
+				nearest = cuboid;
+				nearestEntry = entry;
+			}
+		}
+		if(nearest == null){
+			return null;
+		}
+		return new RayIntersection(nearest, nearestEntry, nearest.slabExit(originX, originY, originZ, invX, invY, invZ, maxDistance));
+	}
+	
+	/**
+	 * Distance along a normalized ray at which it enters this Cuboid, 0 if it starts inside.
+	 *
+	 * @return the entry distance or NaN if the ray misses within the given distance
+	 */
+	private double slabEntry(double originX, double originY, double originZ, double invX, double invY, double invZ, double maxDistance) {
+		double near = 0, far = maxDistance;
+		
+		if(Double.isInfinite(invX)){
+			if(originX < this.x1 || originX > this.x2 + 1){
+				return Double.NaN;
+			}
+		} else {
+			double t1 = (this.x1 - originX) * invX, t2 = (this.x2 + 1 - originX) * invX;
+			near = Math.max(near, Math.min(t1, t2));
+			far = Math.min(far, Math.max(t1, t2));
+		}
+		
+		if(Double.isInfinite(invY)){
+			if(originY < this.y1 || originY > this.y2 + 1){
+				return Double.NaN;
+			}
+		} else {
+			double t1 = (this.y1 - originY) * invY, t2 = (this.y2 + 1 - originY) * invY;
+			near = Math.max(near, Math.min(t1, t2));
+			far = Math.min(far, Math.max(t1, t2));
+		}
+		
+		if(Double.isInfinite(invZ)){
+			if(originZ < this.z1 || originZ > this.z2 + 1){
+				return Double.NaN;
+			}
+		} else {
+			double t1 = (this.z1 - originZ) * invZ, t2 = (this.z2 + 1 - originZ) * invZ;
+			near = Math.max(near, Math.min(t1, t2));
+			far = Math.min(far, Math.max(t1, t2));
+		}
+		
+		return near <= far ? near : Double.NaN;
+	}
+	
+	/**
+	 * Distance along a normalized ray at which it leaves this Cuboid, capped at the given distance. Only valid if {@link #slabEntry} hit.
+	 */
+	private double slabExit(double originX, double originY, double originZ, double invX, double invY, double invZ, double maxDistance) {
+		double far = maxDistance;
+		if(!Double.isInfinite(invX)){
+			far = Math.min(far, Math.max((this.x1 - originX) * invX, (this.x2 + 1 - originX) * invX));
+		}
+		if(!Double.isInfinite(invY)){
+			far = Math.min(far, Math.max((this.y1 - originY) * invY, (this.y2 + 1 - originY) * invY));
+		}
+		if(!Double.isInfinite(invZ)){
+			far = Math.min(far, Math.max((this.z1 - originZ) * invZ, (this.z2 + 1 - originZ) * invZ));
+		}
+		return far;
+	}
+	
 	/**
 	 * Get the Cuboid big enough to hold both this Cuboid and the given one.
 	 *
@@ -806,6 +1042,47 @@ public final class Cuboid implements Iterable<Block>, Cloneable, ConfigurationSe
 		}
 	}
 	
+	/**
+	 * Result of a ray or segment intersection with a Cuboid.
+	 */
+	public static final class RayIntersection{
+		private final Cuboid cuboid;
+		private final double entryDistance;
+		private final double exitDistance;
+		
+		private RayIntersection(Cuboid cuboid, double entryDistance, double exitDistance) {
+			this.cuboid = cuboid;
+			this.entryDistance = entryDistance;
+			this.exitDistance = exitDistance;
+		}
+		
+		/**
+		 * @return the Cuboid that was hit
+		 */
+		public Cuboid getCuboid() {
+			return cuboid;
+		}
+		
+		/**
+		 * @return the distance along the ray at which it enters the Cuboid, 0 if the ray starts inside
+		 */
+		public double getEntryDistance() {
+			return entryDistance;
+		}
+		
+		/**
+		 * @return the distance along the ray at which it leaves the Cuboid, capped at the maximum distance of the test
+		 */
+		public double getExitDistance() {
+			return exitDistance;
+		}
+		
+		@Override
+		public String toString() {
+			return "RayIntersection{" + "cuboid=" + cuboid + ", entryDistance=" + entryDistance + ", exitDistance=" + exitDistance + '}';
+		}
+	}
+	
 	/**
 	 * Outlines the selected area with particles.
 	 *
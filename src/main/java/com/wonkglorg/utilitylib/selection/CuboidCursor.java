@@ -0,0 +1,196 @@
+package com.wonkglorg.utilitylib.selection;
+
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Resumable cursor over all blocks of a {@link Cuboid}, meant for sweeps that are too long for a single tick or even a single session.
+ * <p>
+ * Blocks are visited chunk column by chunk column (inside a column y first, then z, then x) so every chunk is only needed while its column is
+ * processed. Every call to {@link #step(int, Consumer)} processes a bounded amount of blocks, and the position can be serialized at any time
+ * and restored with {@link #deserialize(Map)} after a restart to continue where the sweep stopped.
+ */
+@SuppressWarnings("unused")
+public final class CuboidCursor implements ConfigurationSerializable{
+	
+	private final Cuboid cuboid;
+	private final int minX, minY, minZ, maxX, maxY, maxZ;
+	private final int columnMinX, columnMinZ;
+	private final int columnsX, columnCount;
+	
+	/**
+	 * Index of the current chunk column.
+	 */
+	private int column;
+	/**
+	 * Index of the next block inside the current column.
+	 */
+	private long offset;
+	private long processed;
+	
+	/**
+	 * Creates a cursor at the start of the given Cuboid.
+	 *
+	 * @param cuboid - The Cuboid to sweep
+	 */
+	public CuboidCursor(Cuboid cuboid) {
+		this(cuboid, 0, 0, 0);
+	}
+	
+	private CuboidCursor(Cuboid cuboid, int column, long offset, long processed) {
+		if(cuboid == null){
+			throw new IllegalArgumentException("Cuboid must not be null");
+		}
+		this.cuboid = cuboid;
+		this.minX = (int) cuboid.getLowerX();
+		this.minY = (int) cuboid.getLowerY();
+		this.minZ = (int) cuboid.getLowerZ();
+		this.maxX = (int) cuboid.getUpperX();
+		this.maxY = (int) cuboid.getUpperY();
+		this.maxZ = (int) cuboid.getUpperZ();
+		this.columnMinX = minX >> 4;
+		this.columnMinZ = minZ >> 4;
+		this.columnsX = (maxX >> 4) - columnMinX + 1;
+		this.columnCount = columnsX * ((maxZ >> 4) - columnMinZ + 1);
+		this.column = column;
+		this.offset = offset;
+		this.processed = processed;
+	}
+	
+	/**
+	 * Restores a cursor from its serialized form.
+	 *
+	 * @param map - The map created by {@link #serialize()}
+	 * @return the restored cursor
+	 */
+	@SuppressWarnings("unchecked")
+	public static CuboidCursor deserialize(Map<String, Object> map) {
+		Cuboid cuboid = Cuboid.create((Map<String, Object>) map.get("cuboid"));
+		int column = ((Number) map.get("column")).intValue();
+		long offset = ((Number) map.get("offset")).longValue();
+		long processed = ((Number) map.get("processed")).longValue();
+		return new CuboidCursor(cuboid, column, offset, processed);
+	}
+	
+	@Override
+	public @NotNull Map<String, Object> serialize() {
+		Map<String, Object> map = new HashMap<>();
+		map.put("cuboid", cuboid.serialize());
+		map.put("column", column);
+		map.put("offset", offset);
+		map.put("processed", processed);
+		return map;
+	}
+	
+	/**
+	 * Processes up to the given amount of blocks, has to be called on the main thread.
+	 *
+	 * @param maxBlocks - The maximum amount of blocks to process in this call
+	 * @param action - The action to run for every block
+	 * @return true once all blocks of the Cuboid were processed
+	 */
+	public boolean step(int maxBlocks, Consumer<Block> action) {
+		return step(maxBlocks, Long.MAX_VALUE, action);
+	}
+	
+	/**
+	 * Processes blocks until either the given amount of blocks was processed or the time budget is used up, has to be called on the main thread.
+	 * The time is checked every 64 blocks.
+	 *
+	 * @param maxBlocks - The maximum amount of blocks to process in this call
+	 * @param maxNanos - The time budget of this call in nanoseconds
+	 * @param action - The action to run for every block
+	 * @return true once all blocks of the Cuboid were processed
+	 */
+	public boolean step(int maxBlocks, long maxNanos, Consumer<Block> action) {
+		if(isDone()){
+			return true;
+		}
+		World world = cuboid.getWorld();
+		long start = System.nanoTime();
+		int budget = maxBlocks;
+		while(budget > 0 && column < columnCount){
+			int columnX = columnMinX + column % columnsX;
+			int columnZ = columnMinZ + column / columnsX;
+			int lowerX = Math.max(minX, columnX << 4);
+			int lowerZ = Math.max(minZ, columnZ << 4);
+			int sizeX = Math.min(maxX, (columnX << 4) + 15) - lowerX + 1;
+			int sizeZ = Math.min(maxZ, (columnZ << 4) + 15) - lowerZ + 1;
+			long layerSize = (long) sizeX * sizeZ;
+			long columnSize = layerSize * (maxY - minY + 1);
+			
+			while(budget > 0 && offset < columnSize){
+				int y = minY + (int) (offset / layerSize);
+				int z = lowerZ + (int) ((offset % layerSize) / sizeX);
+				int x = lowerX + (int) (offset % sizeX);
+				action.accept(world.getBlockAt(x, y, z));
+				offset++;
+				processed++;
+				budget--;
+				if((processed & 63) == 0 && System.nanoTime() - start >= maxNanos){
+					budget = 0;
+				}
+			}
+			if(offset >= columnSize){
+				column++;
+				offset = 0;
+			}
+		}
+		return isDone();
+	}
+	
+	/**
+	 * @return true once all blocks of the Cuboid were processed
+	 */
+	public boolean isDone() {
+		return column >= columnCount;
+	}
+	
+	/**
+	 * Moves the cursor back to the first block.
+	 */
+	public void reset() {
+		column = 0;
+		offset = 0;
+		processed = 0;
+	}
+	
+	/**
+	 * @return the amount of blocks processed so far
+	 */
+	public long getProcessed() {
+		return processed;
+	}
+	
+	/**
+	 * @return the total amount of blocks of the Cuboid
+	 */
+	public long getTotal() {
+		return (long) (maxX - minX + 1) * (maxY - minY + 1) * (maxZ - minZ + 1);
+	}
+	
+	/**
+	 * @return the progress between 0 and 1
+	 */
+	public double getProgress() {
+		return (double) processed / getTotal();
+	}
+	
+	/**
+	 * @return the Cuboid this cursor sweeps
+	 */
+	public Cuboid getCuboid() {
+		return cuboid;
+	}
+	
+	@Override
+	public String toString() {
+		return "CuboidCursor{" + "cuboid=" + cuboid + ", column=" + column + ", offset=" + offset + ", processed=" + processed + '}';
+	}
+}
@@ -0,0 +1,289 @@
+package com.wonkglorg.utilitylib.selection;
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.data.BlockData;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Content fingerprint of a {@link Cuboid}. The region is split along the 16x16x16 chunk section grid, every section gets its own hash of the
+ * block data it contains and all section hashes are combined into a single region hash.
+ * <p>
+ * Sections touched by block changes are marked dirty via {@link #markDirty(int, int, int)} and only those get rehashed on the next
+ * {@link #update()}, so checking whether a protected region is unchanged costs a handful of section hashes instead of a full block comparison.
+ * Hashes are derived from {@link BlockData#getAsString()} and therefore stay stable across restarts, they can be stored and compared later.
+ * <p>
+ * Not thread safe, {@link #update()} reads the world and must be called on the main thread.
+ */
+@SuppressWarnings("unused")
+public final class CuboidFingerprint{
+	
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+	
+	private final Cuboid cuboid;
+	private final int minX, minY, minZ, maxX, maxY, maxZ;
+	/**
+	 * Section grid bounds (section co-ordinates, inclusive lower bound).
+	 */
+	private final int sectionMinX, sectionMinY, sectionMinZ;
+	private final int sectionsX, sectionsY, sectionsZ;
+	
+	private final long[] sectionHashes;
+	private final BitSet dirty;
+	/**
+	 * Cache of the hash for every distinct block state seen, avoids rebuilding the state string for every block.
+	 */
+	private final Map<BlockData, Long> stateHashes = new HashMap<>();
+	private long regionHash;
+	
+	/**
+	 * Creates a fingerprint for the given Cuboid, all sections start dirty and get hashed on the first {@link #update()}.
+	 *
+	 * @param cuboid - The Cuboid to fingerprint
+	 */
+	public CuboidFingerprint(Cuboid cuboid) {
+		if(cuboid == null){
+			throw new IllegalArgumentException("Cuboid must not be null");
+		}
+		this.cuboid = cuboid;
+		this.minX = (int) cuboid.getLowerX();
+		this.minY = (int) cuboid.getLowerY();
+		this.minZ = (int) cuboid.getLowerZ();
+		this.maxX = (int) cuboid.getUpperX();
+		this.maxY = (int) cuboid.getUpperY();
+		this.maxZ = (int) cuboid.getUpperZ();
+		this.sectionMinX = minX >> 4;
+		this.sectionMinY = minY >> 4;
+		this.sectionMinZ = minZ >> 4;
+		this.sectionsX = (maxX >> 4) - sectionMinX + 1;
+		this.sectionsY = (maxY >> 4) - sectionMinY + 1;
+		this.sectionsZ = (maxZ >> 4) - sectionMinZ + 1;
+		this.sectionHashes = new long[sectionsX * sectionsY * sectionsZ];
+		this.dirty = new BitSet(sectionHashes.length);
+		this.dirty.set(0, sectionHashes.length);
+		for(int i = 0; i < sectionHashes.length; i++){
+			regionHash += mix(i, 0);
+		}
+	}
+	
+	/**
+	 * Marks the section containing the given block as dirty. Positions outside the Cuboid are ignored.
+	 *
+	 * @param x - The X co-ordinate
+	 * @param y - The Y co-ordinate
+	 * @param z - The Z co-ordinate
+	 */
+	public void markDirty(int x, int y, int z) {
+		if(x < minX || x > maxX || y < minY || y > maxY || z < minZ || z > maxZ){
+			return;
+		}
+		dirty.set(sectionIndex((x >> 4) - sectionMinX, (y >> 4) - sectionMinY, (z >> 4) - sectionMinZ));
+	}
+	
+	/**
+	 * Marks the section containing the given block as dirty.
+	 *
+	 * @param block - The changed block
+	 */
+	public void markDirty(Block block) {
+		markDirty(block.getLocation());
+	}
+	
+	/**
+	 * Marks the section containing the given location as dirty. Locations in other worlds are ignored.
+	 *
+	 * @param location - The changed location
+	 */
+	public void markDirty(Location location) {
+		if(!cuboid.contains(location)){
+			return;
+		}
+		markDirty(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+	}
+	
+	/**
+	 * Marks every section dirty, forcing a full rehash on the next {@link #update()}.
+	 */
+	public void markAllDirty() {
+		dirty.set(0, sectionHashes.length);
+	}
+	
+	/**
+	 * @return true if any section needs to be rehashed
+	 */
+	public boolean isDirty() {
+		return !dirty.isEmpty();
+	}
+	
+	/**
+	 * @return the amount of sections waiting to be rehashed
+	 */
+	public int getDirtySectionCount() {
+		return dirty.cardinality();
+	}
+	
+	/**
+	 * Rehashes all dirty sections and updates the region hash. Every chunk holding dirty sections is captured as a single snapshot.
+	 *
+	 * @return the updated region hash
+	 */
+	public long update() {
+		if(dirty.isEmpty()){
+			return regionHash;
+		}
+		World world = cuboid.getWorld();
+		for(int sz = 0; sz < sectionsZ; sz++){
+			for(int sx = 0; sx < sectionsX; sx++){
+				ChunkSnapshot snapshot = null;
+				for(int sy = 0; sy < sectionsY; sy++){
+					int index = sectionIndex(sx, sy, sz);
+					if(!dirty.get(index)){
+						continue;
+					}
+					if(snapshot == null){
+						snapshot = world.getChunkAt(sectionMinX + sx, sectionMinZ + sz).getChunkSnapshot(false, false, false);
+					}
+					long hash = hashSection(snapshot, sx, sy, sz);
+					regionHash -= mix(index, sectionHashes[index]);
+					regionHash += mix(index, hash);
+					sectionHashes[index] = hash;
+				}
+			}
+		}
+		dirty.clear();
+		return regionHash;
+	}
+	
+	/**
+	 * Gets the region hash as of the last {@link #update()}. Call {@link #update()} first if sections are dirty.
+	 *
+	 * @return the combined hash of all sections
+	 */
+	public long getRegionHash() {
+		return regionHash;
+	}
+	
+	/**
+	 * Checks if the region is unchanged compared to a previously stored region hash, rehashing dirty sections first.
+	 *
+	 * @param expectedHash - The stored region hash
+	 * @return true if the region content matches
+	 */
+	public boolean matches(long expectedHash) {
+		return update() == expectedHash;
+	}
+	
+	/**
+	 * Gets a copy of all section hashes, ordered x first, then z, then y. Can be stored to later find out which sections were tampered with.
+	 *
+	 * @return the section hashes
+	 */
+	public long[] getSectionHashes() {
+		return Arrays.copyOf(sectionHashes, sectionHashes.length);
+	}
+	
+	/**
+	 * Compares the current content against previously stored section hashes, rehashing dirty sections first.
+	 *
+	 * @param expected - Section hashes as returned by {@link #getSectionHashes()}
+	 * @return the indices of all sections that differ, empty if the region is unchanged
+	 * @throws IllegalArgumentException if the hashes were taken from a Cuboid with a different section layout
+	 */
+	public BitSet getChangedSections(long[] expected) {
+		if(expected.length != sectionHashes.length){
+			throw new IllegalArgumentException("Expected " + sectionHashes.length + " section hashes but got " + expected.length);
+		}
+		update();
+		BitSet changed = new BitSet(sectionHashes.length);
+		for(int i = 0; i < sectionHashes.length; i++){
+			if(sectionHashes[i] != expected[i]){
+				changed.set(i);
+			}
+		}
+		return changed;
+	}
+	
+	/**
+	 * Gets the part of the Cuboid covered by the section at the given index, useful to inspect sections reported by
+	 * {@link #getChangedSections(long[])}.
+	 *
+	 * @param index - The section index
+	 * @return The Cuboid covering the section clipped to the fingerprinted region
+	 */
+	public Cuboid getSection(int index) {
+		int sx = index % sectionsX;
+		int sz = (index / sectionsX) % sectionsZ;
+		int sy = index / (sectionsX * sectionsZ);
+		int lowerX = Math.max(minX, (sectionMinX + sx) << 4);
+		int lowerY = Math.max(minY, (sectionMinY + sy) << 4);
+		int lowerZ = Math.max(minZ, (sectionMinZ + sz) << 4);
+		int upperX = Math.min(maxX, ((sectionMinX + sx) << 4) + 15);
+		int upperY = Math.min(maxY, ((sectionMinY + sy) << 4) + 15);
+		int upperZ = Math.min(maxZ, ((sectionMinZ + sz) << 4) + 15);
+		return Cuboid.create(cuboid.getWorld(), lowerX, lowerY, lowerZ, upperX, upperY, upperZ);
+	}
+	
+	/**
+	 * @return the fingerprinted Cuboid
+	 */
+	public Cuboid getCuboid() {
+		return cuboid;
+	}
+	
+	private int sectionIndex(int sx, int sy, int sz) {
+		return (sy * sectionsZ + sz) * sectionsX + sx;
+	}
+	
+	private long hashSection(ChunkSnapshot snapshot, int sx, int sy, int sz) {
+		int baseX = (sectionMinX + sx) << 4;
+		int baseY = (sectionMinY + sy) << 4;
+		int baseZ = (sectionMinZ + sz) << 4;
+		int lowerX = Math.max(minX, baseX) - baseX;
+		int lowerZ = Math.max(minZ, baseZ) - baseZ;
+		int upperX = Math.min(maxX, baseX + 15) - baseX;
+		int upperZ = Math.min(maxZ, baseZ + 15) - baseZ;
+		int lowerY = Math.max(minY, baseY);
+		int upperY = Math.min(maxY, baseY + 15);
+		
+		long hash = FNV_OFFSET;
+		for(int y = lowerY; y <= upperY; y++){
+			for(int z = lowerZ; z <= upperZ; z++){
+				for(int x = lowerX; x <= upperX; x++){
+					hash = (hash ^ stateHash(snapshot.getBlockData(x, y, z))) * FNV_PRIME;
+				}
+			}
+		}
+		return hash;
+	}
+	
+	private long stateHash(BlockData data) {
+		Long cached = stateHashes.get(data);
+		if(cached != null){
+			return cached;
+		}
+		long hash = FNV_OFFSET;
+		for(byte b : data.getAsString().getBytes(StandardCharsets.UTF_8)){
+			hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+		}
+		stateHashes.put(data, hash);
+		return hash;
+	}
+	
+	/**
+	 * Spreads a section hash with its index so the combined region hash is order independent but still position sensitive.
+	 */
+	private static long mix(int index, long hash) {
+		long h = hash + index * 0x9e3779b97f4a7c15L;
+		h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+		h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		return h ^ (h >>> 33);
+	}
+}
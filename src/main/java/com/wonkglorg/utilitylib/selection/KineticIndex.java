@@ -0,0 +1,725 @@
+package com.wonkglorg.utilitylib.selection;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Spatial index for regions of one world where regions can be bound to a moving anchor, for example hitboxes and auras following entities.
+ * <p>
+ * Regions are kept in a dynamic bounding volume tree over "fat" boxes, the exact box of a region grown by a margin and by its last movement.
+ * {@link #update()} moves the exact boxes of all anchored regions in place every tick and only restructures the tree for regions that left
+ * their fat box, so slowly moving regions cost a few comparisons per tick and nothing is allocated. Overlap tests always use the exact boxes.
+ * <p>
+ * Unlike {@link Cuboid}, regions use continuous co-ordinates, a region created from a Cuboid covers its blocks from the lower corner to the
+ * upper corner plus one. Not thread safe.
+ */
+@SuppressWarnings("unused")
+public final class KineticIndex{
+	
+	private static final int NULL = -1;
+	/**
+	 * How many ticks of the last movement get added to the fat box of a moving region.
+	 */
+	private static final double PREDICTION_TICKS = 2;
+	
+	private final String worldName;
+	private final double margin;
+	
+	//tree nodes, bounds holds minX, minY, minZ, maxX, maxY, maxZ for every node
+	private double[] bounds;
+	private int[] parent;
+	private int[] child1;
+	private int[] child2;
+	private int[] height;
+	private Region[] regions;
+	private int root = NULL;
+	private int freeList = NULL;
+	private int nodeCount;
+	
+	private final List<Region> anchored = new ArrayList<>();
+	private final Location scratch;
+	private int[] stack = new int[64];
+	private int nextId;
+	private int size;
+	
+	private KineticIndex(String worldName, double margin) {
+		if(margin < 0){
+			throw new IllegalArgumentException("Margin must not be negative");
+		}
+		this.worldName = worldName;
+		this.margin = margin;
+		this.scratch = new Location(null, 0, 0, 0);
+		allocateNodes(16);
+	}
+	
+	/**
+	 * Construct an empty index for regions in the given world name.
+	 *
+	 * @param worldName - The world name of all regions in this index
+	 * @param margin - The slack added around moving regions, larger values restructure less often but make queries less precise
+	 */
+	public static KineticIndex create(String worldName, double margin) {
+		return new KineticIndex(worldName, margin);
+	}
+	
+	/**
+	 * Construct an empty index for regions in the given World.
+	 *
+	 * @param world - The World of all regions in this index
+	 * @param margin - The slack added around moving regions, larger values restructure less often but make queries less precise
+	 */
+	public static KineticIndex create(World world, double margin) {
+		return new KineticIndex(world.getName(), margin);
+	}
+	
+	/**
+	 * Adds a region that never moves.
+	 *
+	 * @param cuboid - The blocks covered by the region
+	 * @return the added region
+	 */
+	public Region addStatic(Cuboid cuboid) {
+		checkWorld(cuboid);
+		Region region = new Region(null, null, 0, 0, 0, 0, 0, 0);
+		region.setBounds(cuboid.getLowerX(), cuboid.getLowerY(), cuboid.getLowerZ(), cuboid.getUpperX() + 1, cuboid.getUpperY() + 1,
+				cuboid.getUpperZ() + 1);
+		insert(region, 0, 0, 0, 0);
+		return region;
+	}
+	
+	/**
+	 * Adds a region following an anchor. The offsets are relative to the anchor position and fixed for the lifetime of the region.
+	 *
+	 * @param anchor - Supplies the anchor position every update
+	 * @param minX - Offset of the lower X bound
+	 * @param minY - Offset of the lower Y bound
+	 * @param minZ - Offset of the lower Z bound
+	 * @param maxX - Offset of the upper X bound
+	 * @param maxY - Offset of the upper Y bound
+	 * @param maxZ - Offset of the upper Z bound
+	 * @return the added region
+	 */
+	public Region attach(Anchor anchor, double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+		return attach(anchor, null, minX, minY, minZ, maxX, maxY, maxZ);
+	}
+	
+	/**
+	 * Adds a region following an Entity. The offsets are relative to the Entity location, the region is removed once the Entity is no longer
+	 * valid or leaves the world of this index.
+	 *
+	 * @param entity - The Entity to follow
+	 * @param minX - Offset of the lower X bound
+	 * @param minY - Offset of the lower Y bound
+	 * @param minZ - Offset of the lower Z bound
+	 * @param maxX - Offset of the upper X bound
+	 * @param maxY - Offset of the upper Y bound
+	 * @param maxZ - Offset of the upper Z bound
+	 * @return the added region
+	 */
+	public Region attach(Entity entity, double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+		return attach(entity::getLocation, entity, minX, minY, minZ, maxX, maxY, maxZ);
+	}
+	
+	/**
+	 * Adds a region following an Entity, the offsets are taken from the position of the Cuboid relative to the Entity's current location.
+	 *
+	 * @param entity - The Entity to follow
+	 * @param cuboid - The blocks covered by the region at the Entity's current location
+	 * @return the added region
+	 */
+	public Region attach(Entity entity, Cuboid cuboid) {
+		checkWorld(cuboid);
+		Location location = entity.getLocation(scratch);
+		double x = location.getX();
+		double y = location.getY();
+		double z = location.getZ();
+		return attach(entity, cuboid.getLowerX() - x, cuboid.getLowerY() - y, cuboid.getLowerZ() - z, cuboid.getUpperX() + 1 - x,
+				cuboid.getUpperY() + 1 - y, cuboid.getUpperZ() + 1 - z);
+	}
+	
+	private Region attach(Anchor anchor, Entity entity, double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+		Region region = new Region(anchor, entity, Math.min(minX, maxX), Math.min(minY, maxY), Math.min(minZ, maxZ), Math.max(minX, maxX),
+				Math.max(minY, maxY), Math.max(minZ, maxZ));
+		Location location = anchor.getLocation(scratch);
+		region.moveTo(location.getX(), location.getY(), location.getZ());
+		insert(region, margin, 0, 0, 0);
+		region.anchoredIndex = anchored.size();
+		anchored.add(region);
+		return region;
+	}
+	
+	/**
+	 * Moves all anchored regions to the current position of their anchor, call this once per tick. Regions whose Entity is no longer valid are
+	 * removed.
+	 *
+	 * @return the amount of regions that left their fat box and were reinserted
+	 */
+	public int update() {
+		int reinserted = 0;
+		for(int i = anchored.size() - 1; i >= 0; i--){
+			Region region = anchored.get(i);
+			Entity entity = region.entity;
+			if(entity != null && (!entity.isValid() || !worldName.equals(entity.getWorld().getName()))){
+				remove(region);
+				continue;
+			}
+			Location location = region.anchor.getLocation(scratch);
+			double dx = location.getX() - region.anchorX;
+			double dy = location.getY() - region.anchorY;
+			double dz = location.getZ() - region.anchorZ;
+			region.moveTo(location.getX(), location.getY(), location.getZ());
+			if(fatContains(region.node, region)){
+				continue;
+			}
+			removeLeaf(region.node);
+			freeNode(region.node);
+			insert(region, margin, dx * PREDICTION_TICKS, dy * PREDICTION_TICKS, dz * PREDICTION_TICKS);
+			size--;
+			reinserted++;
+		}
+		return reinserted;
+	}
+	
+	/**
+	 * Removes a region from this index, does nothing if it was already removed.
+	 *
+	 * @param region - The region to remove
+	 */
+	public void remove(Region region) {
+		if(region.owner != this || region.node == NULL){
+			return;
+		}
+		removeLeaf(region.node);
+		freeNode(region.node);
+		region.node = NULL;
+		size--;
+		if(region.anchoredIndex >= 0){
+			//swap remove, the order of anchored regions does not matter
+			Region last = anchored.remove(anchored.size() - 1);
+			if(last != region){
+				anchored.set(region.anchoredIndex, last);
+				last.anchoredIndex = region.anchoredIndex;
+			}
+			region.anchoredIndex = -1;
+		}
+	}
+	
+	/**
+	 * Finds all regions overlapping the given box.
+	 *
+	 * @param minX - The lower X bound
+	 * @param minY - The lower Y bound
+	 * @param minZ - The lower Z bound
+	 * @param maxX - The upper X bound
+	 * @param maxY - The upper Y bound
+	 * @param maxZ - The upper Z bound
+	 * @param consumer - Receives every overlapping region
+	 */
+	public void query(double minX, double minY, double minZ, double maxX, double maxY, double maxZ, Consumer<Region> consumer) {
+		query(null, minX, minY, minZ, maxX, maxY, maxZ, (region, other) -> consumer.accept(other));
+	}
+	
+	/**
+	 * Finds all other regions overlapping the given region.
+	 *
+	 * @param region - The region to test
+	 * @param consumer - Receives every overlapping region
+	 */
+	public void query(Region region, Consumer<Region> consumer) {
+		query(region, region.minX, region.minY, region.minZ, region.maxX, region.maxY, region.maxZ, (self, other) -> consumer.accept(other));
+	}
+	
+	/**
+	 * Finds all regions containing the given point.
+	 *
+	 * @param x - The X co-ordinate
+	 * @param y - The Y co-ordinate
+	 * @param z - The Z co-ordinate
+	 * @param consumer - Receives every containing region
+	 */
+	public void query(double x, double y, double z, Consumer<Region> consumer) {
+		query(x, y, z, x, y, z, region -> {
+			if(region.contains(x, y, z)){
+				consumer.accept(region);
+			}
+		});
+	}
+	
+	/**
+	 * Finds all overlapping pairs that involve at least one anchored region, every pair is reported once. Overlaps between two static regions
+	 * are not reported as they never change.
+	 *
+	 * @param consumer - Receives every overlapping pair, the first region is always anchored
+	 */
+	public void forEachOverlappingPair(PairConsumer consumer) {
+		PairConsumer filter = (self, other) -> {
+			if(other.isStatic() || other.id > self.id){
+				consumer.accept(self, other);
+			}
+		};
+		for(int i = anchored.size() - 1; i >= 0; i--){
+			Region region = anchored.get(i);
+			query(region, region.minX, region.minY, region.minZ, region.maxX, region.maxY, region.maxZ, filter);
+		}
+	}
+	
+	/**
+	 * @return the amount of regions in this index
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * @return the amount of anchored regions in this index
+	 */
+	public int getAnchoredCount() {
+		return anchored.size();
+	}
+	
+	/**
+	 * @return the height of the tree, a balanced tree stays close to log2 of the amount of regions
+	 */
+	public int getTreeHeight() {
+		return root == NULL ? 0 : height[root];
+	}
+	
+	public String getWorldName() {
+		return worldName;
+	}
+	
+	/**
+	 * Removes all regions from this index.
+	 */
+	public void clear() {
+		for(int node = 0; node < nodeCount; node++){
+			if(regions[node] != null){
+				regions[node].node = NULL;
+				regions[node].anchoredIndex = -1;
+				regions[node] = null;
+			}
+		}
+		anchored.clear();
+		root = NULL;
+		freeList = NULL;
+		nodeCount = 0;
+		size = 0;
+	}
+	
+	private void checkWorld(Cuboid cuboid) {
+		if(!worldName.equals(cuboid.getWorld().getName())){
+			throw new IllegalArgumentException("Cuboid is in world " + cuboid.getWorld().getName() + " but the index is for " + worldName);
+		}
+	}
+	
+	private void query(Region self, double minX, double minY, double minZ, double maxX, double maxY, double maxZ, PairConsumer consumer) {
+		if(root == NULL){
+			return;
+		}
+		//nested queries from inside a consumer get their own stack
+		int[] nodes = stack != null ? stack : new int[64];
+		stack = null;
+		int count = 0;
+		nodes[count++] = root;
+		while(count > 0){
+			int node = nodes[--count];
+			int offset = node * 6;
+			if(bounds[offset] > maxX || bounds[offset + 3] < minX || bounds[offset + 1] > maxY || bounds[offset + 4] < minY || bounds[offset + 2] > maxZ
+					|| bounds[offset + 5] < minZ){
+				continue;
+			}
+			Region region = regions[node];
+			if(region != null){
+				if(region != self && region.overlaps(minX, minY, minZ, maxX, maxY, maxZ)){
+					consumer.accept(self, region);
+				}
+				continue;
+			}
+			if(count + 2 > nodes.length){
+				int[] grown = new int[nodes.length * 2];
+				System.arraycopy(nodes, 0, grown, 0, count);
+				nodes = grown;
+			}
+			nodes[count++] = child1[node];
+			nodes[count++] = child2[node];
+		}
+		stack = nodes;
+	}
+	
+	private void insert(Region region, double grow, double predictX, double predictY, double predictZ) {
+		int leaf = allocateNode();
+		int offset = leaf * 6;
+		bounds[offset] = region.minX - grow + Math.min(predictX, 0);
+		bounds[offset + 1] = region.minY - grow + Math.min(predictY, 0);
+		bounds[offset + 2] = region.minZ - grow + Math.min(predictZ, 0);
+		bounds[offset + 3] = region.maxX + grow + Math.max(predictX, 0);
+		bounds[offset + 4] = region.maxY + grow + Math.max(predictY, 0);
+		bounds[offset + 5] = region.maxZ + grow + Math.max(predictZ, 0);
+		regions[leaf] = region;
+		region.node = leaf;
+		region.owner = this;
+		if(region.id < 0){
+			region.id = nextId++;
+		}
+		insertLeaf(leaf);
+		size++;
+	}
+	
+	private boolean fatContains(int node, Region region) {
+		int offset = node * 6;
+		return bounds[offset] <= region.minX && bounds[offset + 1] <= region.minY && bounds[offset + 2] <= region.minZ && bounds[offset + 3] >= region.maxX
+				&& bounds[offset + 4] >= region.maxY && bounds[offset + 5] >= region.maxZ;
+	}
+	
+	private void allocateNodes(int capacity) {
+		bounds = bounds == null ? new double[capacity * 6] : Arrays.copyOf(bounds, capacity * 6);
+		parent = parent == null ? new int[capacity] : Arrays.copyOf(parent, capacity);
+		child1 = child1 == null ? new int[capacity] : Arrays.copyOf(child1, capacity);
+		child2 = child2 == null ? new int[capacity] : Arrays.copyOf(child2, capacity);
+		height = height == null ? new int[capacity] : Arrays.copyOf(height, capacity);
+		regions = regions == null ? new Region[capacity] : Arrays.copyOf(regions, capacity);
+	}
+	
+	private int allocateNode() {
+		int node;
+		if(freeList != NULL){
+			node = freeList;
+			freeList = child1[node];
+		} else {
+			if(nodeCount == parent.length){
+				allocateNodes(parent.length * 2);
+			}
+			node = nodeCount++;
+		}
+		parent[node] = NULL;
+		child1[node] = NULL;
+		child2[node] = NULL;
+		height[node] = 0;
+		regions[node] = null;
+		return node;
+	}
+	
+	private void freeNode(int node) {
+		regions[node] = null;
+		child1[node] = freeList;
+		height[node] = -1;
+		freeList = node;
+	}
+	
+	private boolean isLeaf(int node) {
+		return child1[node] == NULL;
+	}
+	
+	//surface area of the box, or of the union of two boxes, drives the insertion heuristic
+	private double area(int node) {
+		int offset = node * 6;
+		double dx = bounds[offset + 3] - bounds[offset];
+		double dy = bounds[offset + 4] - bounds[offset + 1];
+		double dz = bounds[offset + 5] - bounds[offset + 2];
+		return dx * dy + dy * dz + dz * dx;
+	}
+	
+	private double unionArea(int a, int b) {
+		int oa = a * 6;
+		int ob = b * 6;
+		double dx = Math.max(bounds[oa + 3], bounds[ob + 3]) - Math.min(bounds[oa], bounds[ob]);
+		double dy = Math.max(bounds[oa + 4], bounds[ob + 4]) - Math.min(bounds[oa + 1], bounds[ob + 1]);
+		double dz = Math.max(bounds[oa + 5], bounds[ob + 5]) - Math.min(bounds[oa + 2], bounds[ob + 2]);
+		return dx * dy + dy * dz + dz * dx;
+	}
+	
+	private void setUnion(int target, int a, int b) {
+		int ot = target * 6;
+		int oa = a * 6;
+		int ob = b * 6;
+		for(int i = 0; i < 3; i++){
+			bounds[ot + i] = Math.min(bounds[oa + i], bounds[ob + i]);
+			bounds[ot + 3 + i] = Math.max(bounds[oa + 3 + i], bounds[ob + 3 + i]);
+		}
+	}
+	
+	private void insertLeaf(int leaf) {
+		if(root == NULL){
+			root = leaf;
+			parent[leaf] = NULL;
+			return;
+		}
+		
+		//walk down towards the sibling with the lowest cost increase
+		int index = root;
+		while(!isLeaf(index)){
+			int c1 = child1[index];
+			int c2 = child2[index];
+			double area = area(index);
+			double combinedArea = unionArea(index, leaf);
+			double cost = 2 * combinedArea;
+			double inheritanceCost = 2 * (combinedArea - area);
+			double cost1 = unionArea(leaf, c1) - (isLeaf(c1) ? 0 : area(c1)) + inheritanceCost;
+			double cost2 = unionArea(leaf, c2) - (isLeaf(c2) ? 0 : area(c2)) + inheritanceCost;
+			if(cost < cost1 && cost < cost2){
+				break;
+			}
+			index = cost1 < cost2 ? c1 : c2;
+		}
+		int sibling = index;
+		
+		int oldParent = parent[sibling];
+		int newParent = allocateNode();
+		parent[newParent] = oldParent;
+		setUnion(newParent, leaf, sibling);
+		height[newParent] = height[sibling] + 1;
+		if(oldParent != NULL){
+			if(child1[oldParent] == sibling){
+				child1[oldParent] = newParent;
+			} else {
+				child2[oldParent] = newParent;
+			}
+		} else {
+			root = newParent;
+		}
+		child1[newParent] = sibling;
+		child2[newParent] = leaf;
+		parent[sibling] = newParent;
+		parent[leaf] = newParent;
+		
+		refit(parent[leaf]);
+	}
+	
+	private void removeLeaf(int leaf) {
+		if(leaf == root){
+			root = NULL;
+			return;
+		}
+		int oldParent = parent[leaf];
+		int grandParent = parent[oldParent];
+		int sibling = child1[oldParent] == leaf ? child2[oldParent] : child1[oldParent];
+		if(grandParent != NULL){
+			if(child1[grandParent] == oldParent){
+				child1[grandParent] = sibling;
+			} else {
+				child2[grandParent] = sibling;
+			}
+			parent[sibling] = grandParent;
+			freeNode(oldParent);
+			refit(grandParent);
+		} else {
+			root = sibling;
+			parent[sibling] = NULL;
+			freeNode(oldParent);
+		}
+	}
+	
+	//rebalances and recomputes bounds and heights from the given node up to the root
+	private void refit(int index) {
+		while(index != NULL){
+			index = balance(index);
+			int c1 = child1[index];
+			int c2 = child2[index];
+			height[index] = 1 + Math.max(height[c1], height[c2]);
+			setUnion(index, c1, c2);
+			index = parent[index];
+		}
+	}
+	
+	//performs a left or right rotation if the node is imbalanced, returns the new root of the subtree
+	private int balance(int a) {
+		if(isLeaf(a) || height[a] < 2){
+			return a;
+		}
+		int b = child1[a];
+		int c = child2[a];
+		int balance = height[c] - height[b];
+		if(balance > 1){
+			rotateUp(a, c, b, false);
+			return c;
+		}
+		if(balance < -1){
+			rotateUp(a, b, c, true);
+			return b;
+		}
+		return a;
+	}
+	
+	//moves the higher child up to the place of a, a keeps the other child and the lower grandchild
+	private void rotateUp(int a, int up, int other, boolean upIsFirst) {
+		int f = child1[up];
+		int g = child2[up];
+		child1[up] = a;
+		parent[up] = parent[a];
+		parent[a] = up;
+		if(parent[up] != NULL){
+			if(child1[parent[up]] == a){
+				child1[parent[up]] = up;
+			} else {
+				child2[parent[up]] = up;
+			}
+		} else {
+			root = up;
+		}
+		int keep = height[f] > height[g] ? f : g;
+		int move = keep == f ? g : f;
+		child2[up] = keep;
+		if(upIsFirst){
+			child1[a] = move;
+		} else {
+			child2[a] = move;
+		}
+		parent[move] = a;
+		setUnion(a, other, move);
+		setUnion(up, a, keep);
+		height[a] = 1 + Math.max(height[other], height[move]);
+		height[up] = 1 + Math.max(height[a], height[keep]);
+	}
+	
+	/**
+	 * Supplies the position of a moving region, usually {@code entity::getLocation}.
+	 */
+	@FunctionalInterface
+	public interface Anchor{
+		/**
+		 * @param reuse - A Location that may be filled and returned instead of allocating a new one
+		 * @return the current anchor position
+		 */
+		Location getLocation(Location reuse);
+	}
+	
+	@FunctionalInterface
+	public interface PairConsumer{
+		void accept(Region first, Region second);
+	}
+	
+	/**
+	 * A region in a {@link KineticIndex}. The bounds of anchored regions change in place on every {@link KineticIndex#update()}.
+	 */
+	public static final class Region{
+		private final Anchor anchor;
+		private final Entity entity;
+		private final double offsetMinX, offsetMinY, offsetMinZ, offsetMaxX, offsetMaxY, offsetMaxZ;
+		private double minX, minY, minZ, maxX, maxY, maxZ;
+		private double anchorX, anchorY, anchorZ;
+		private KineticIndex owner;
+		private int node = NULL;
+		private int anchoredIndex = -1;
+		private int id = -1;
+		
+		private Region(Anchor anchor, Entity entity, double offsetMinX, double offsetMinY, double offsetMinZ, double offsetMaxX, double offsetMaxY,
+				double offsetMaxZ) {
+			this.anchor = anchor;
+			this.entity = entity;
+			this.offsetMinX = offsetMinX;
+			this.offsetMinY = offsetMinY;
+			this.offsetMinZ = offsetMinZ;
+			this.offsetMaxX = offsetMaxX;
+			this.offsetMaxY = offsetMaxY;
+			this.offsetMaxZ = offsetMaxZ;
+		}
+		
+		private void setBounds(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+			this.minX = minX;
+			this.minY = minY;
+			this.minZ = minZ;
+			this.maxX = maxX;
+			this.maxY = maxY;
+			this.maxZ = maxZ;
+		}
+		
+		private void moveTo(double x, double y, double z) {
+			anchorX = x;
+			anchorY = y;
+			anchorZ = z;
+			setBounds(x + offsetMinX, y + offsetMinY, z + offsetMinZ, x + offsetMaxX, y + offsetMaxY, z + offsetMaxZ);
+		}
+		
+		private boolean overlaps(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+			return this.minX <= maxX && this.maxX >= minX && this.minY <= maxY && this.maxY >= minY && this.minZ <= maxZ && this.maxZ >= minZ;
+		}
+		
+		/**
+		 * Check if this region overlaps the other region, touching boxes count as overlapping.
+		 *
+		 * @param other - The other region
+		 * @return true if the regions overlap
+		 */
+		public boolean overlaps(Region other) {
+			return overlaps(other.minX, other.minY, other.minZ, other.maxX, other.maxY, other.maxZ);
+		}
+		
+		/**
+		 * Check if the given point is inside of this region.
+		 *
+		 * @param x - The X co-ordinate
+		 * @param y - The Y co-ordinate
+		 * @param z - The Z co-ordinate
+		 * @return true if the point is inside
+		 */
+		public boolean contains(double x, double y, double z) {
+			return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ;
+		}
+		
+		/**
+		 * Creates a Cuboid of all blocks this region currently touches.
+		 *
+		 * @return a new Cuboid
+		 */
+		public Cuboid toCuboid() {
+			return Cuboid.create(owner.worldName, Math.floor(minX), Math.floor(minY), Math.floor(minZ), Math.max(Math.floor(minX), Math.ceil(maxX) - 1),
+					Math.max(Math.floor(minY), Math.ceil(maxY) - 1), Math.max(Math.floor(minZ), Math.ceil(maxZ) - 1));
+		}
+		
+		/**
+		 * @return true if this region never moves
+		 */
+		public boolean isStatic() {
+			return anchor == null;
+		}
+		
+		/**
+		 * @return true if this region is still part of its index
+		 */
+		public boolean isValid() {
+			return node != NULL;
+		}
+		
+		/**
+		 * @return the followed Entity or null if this region is static or follows a custom anchor
+		 */
+		public Entity getEntity() {
+			return entity;
+		}
+		
+		public double getMinX() {
+			return minX;
+		}
+		
+		public double getMinY() {
+			return minY;
+		}
+		
+		public double getMinZ() {
+			return minZ;
+		}
+		
+		public double getMaxX() {
+			return maxX;
+		}
+		
+		public double getMaxY() {
+			return maxY;
+		}
+		
+		public double getMaxZ() {
+			return maxZ;
+		}
+		
+		@Override
+		public String toString() {
+			return "Region{" + minX + ", " + minY + ", " + minZ + " -> " + maxX + ", " + maxY + ", " + maxZ + (isStatic() ? ", static}" : "}");
+		}
+	}
+}
@@ -0,0 +1,995 @@
+package com.wonkglorg.utilitylib.selection;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Freeform selection stored as a bitmask over a bounding {@link Cuboid}, for brush painted or otherwise irregular selections.
+ * <p>
+ * Blocks are grouped by 16x16x16 chunk section and every section uses the smallest of three containers: a sorted array of positions for
+ * sparse sections, a 4096 bit bitmap for dense noisy ones and a list of runs for large solid areas. Containers are picked automatically by
+ * {@link #optimize()}, which runs after bulk operations and before encoding, so even selections of millions of blocks encode into a few
+ * kilobytes when they are mostly solid. Union and intersection with other masks combine whole sections as bitmaps.
+ * <p>
+ * Not thread safe.
+ */
+@SuppressWarnings("unused")
+public final class MaskSelection implements Selection{
+	
+	private static final int MAGIC = 0x4D534B31;
+	private static final byte ARRAY = 0, BITMAP = 1, RUNS = 2;
+	/**
+	 * Amount of longs needed for the 4096 bits of a section.
+	 */
+	private static final int SECTION_LONGS = 64;
+	/**
+	 * Array containers grow into bitmaps past this size, at that point both use 512 bytes.
+	 */
+	private static final int MAX_ARRAY_SIZE = 256;
+	//section co-ordinates are offset so packed keys sort by y, then z, then x
+	private static final long SECTION_OFFSET_XZ = 1L << 21;
+	private static final long SECTION_OFFSET_Y = 1L << 9;
+	
+	private final Cuboid bounds;
+	private final int minX, minY, minZ, maxX, maxY, maxZ;
+	private final Map<Long, Container> sections = new HashMap<>();
+	private long size;
+	
+	private MaskSelection(Cuboid bounds) {
+		if(bounds == null){
+			throw new IllegalArgumentException("Cuboid must not be null");
+		}
+		this.bounds = bounds;
+		this.minX = (int) bounds.getLowerX();
+		this.minY = (int) bounds.getLowerY();
+		this.minZ = (int) bounds.getLowerZ();
+		this.maxX = (int) bounds.getUpperX();
+		this.maxY = (int) bounds.getUpperY();
+		this.maxZ = (int) bounds.getUpperZ();
+	}
+	
+	/**
+	 * Construct an empty mask for blocks inside the given Cuboid.
+	 *
+	 * @param bounds - The Cuboid bounding all blocks of this mask
+	 */
+	public static MaskSelection create(Cuboid bounds) {
+		return new MaskSelection(bounds);
+	}
+	
+	/**
+	 * Construct a mask containing every block of the given selection.
+	 *
+	 * @param selection - The selection to copy
+	 */
+	public static MaskSelection create(Selection selection) {
+		MaskSelection mask = new MaskSelection(selection.getBoundingBox());
+		mask.set(selection);
+		return mask;
+	}
+	
+	@Override
+	public String getWorldName() {
+		return bounds.getWorldName();
+	}
+	
+	/**
+	 * @return the Cuboid bounding all blocks this mask can contain
+	 */
+	@Override
+	public Cuboid getBoundingBox() {
+		return bounds;
+	}
+	
+	@Override
+	public boolean contains(int x, int y, int z) {
+		if(!inBounds(x, y, z)){
+			return false;
+		}
+		Container container = sections.get(sectionKey(x >> 4, y >> 4, z >> 4));
+		return container != null && container.contains(bitIndex(x, y, z));
+	}
+	
+	/**
+	 * Adds the block at the given co-ordinates.
+	 *
+	 * @param x - The X co-ordinate
+	 * @param y - The Y co-ordinate
+	 * @param z - The Z co-ordinate
+	 * @return true if the block was not part of the mask before
+	 * @throws IllegalArgumentException if the position is outside the bounds
+	 */
+	public boolean set(int x, int y, int z) {
+		if(!inBounds(x, y, z)){
+			throw new IllegalArgumentException("Position " + x + "," + y + "," + z + " is outside of " + bounds);
+		}
+		long key = sectionKey(x >> 4, y >> 4, z >> 4);
+		int index = bitIndex(x, y, z);
+		Container container = sections.get(key);
+		if(container == null){
+			container = new ArrayContainer();
+			sections.put(key, container);
+		} else if(container.contains(index)){
+			return false;
+		}
+		Container updated = container.add(index);
+		if(updated != container){
+			sections.put(key, updated);
+		}
+		size++;
+		return true;
+	}
+	
+	/**
+	 * Removes the block at the given co-ordinates.
+	 *
+	 * @param x - The X co-ordinate
+	 * @param y - The Y co-ordinate
+	 * @param z - The Z co-ordinate
+	 * @return true if the block was part of the mask before
+	 */
+	public boolean clear(int x, int y, int z) {
+		if(!inBounds(x, y, z)){
+			return false;
+		}
+		long key = sectionKey(x >> 4, y >> 4, z >> 4);
+		int index = bitIndex(x, y, z);
+		Container container = sections.get(key);
+		if(container == null || !container.contains(index)){
+			return false;
+		}
+		Container updated = container.remove(index);
+		if(updated.cardinality() == 0){
+			sections.remove(key);
+		} else if(updated != container){
+			sections.put(key, updated);
+		}
+		size--;
+		return true;
+	}
+	
+	/**
+	 * Adds every block of the given selection that lies inside the bounds, row by row.
+	 *
+	 * @param selection - The selection to add
+	 */
+	public void set(Selection selection) {
+		checkWorld(selection);
+		selection.forEachSpan((y, z, xStart, xEnd) -> setRow(y, z, xStart, xEnd, true));
+		optimize();
+	}
+	
+	/**
+	 * Removes every block of the given selection, row by row.
+	 *
+	 * @param selection - The selection to remove
+	 */
+	public void clear(Selection selection) {
+		checkWorld(selection);
+		selection.forEachSpan((y, z, xStart, xEnd) -> setRow(y, z, xStart, xEnd, false));
+		optimize();
+	}
+	
+	/**
+	 * Removes all blocks.
+	 */
+	public void clear() {
+		sections.clear();
+		size = 0;
+	}
+	
+	/**
+	 * Creates a mask of every block in this or the other mask, bounded by both bounds.
+	 *
+	 * @param other - The other mask
+	 * @return the combined mask
+	 */
+	public MaskSelection union(MaskSelection other) {
+		checkWorld(other);
+		MaskSelection result = new MaskSelection(bounds.getBoundingCuboid(other.bounds));
+		long[] words = new long[SECTION_LONGS];
+		for(Map.Entry<Long, Container> entry : sections.entrySet()){
+			Arrays.fill(words, 0);
+			entry.getValue().toBitmap(words);
+			Container second = other.sections.get(entry.getKey());
+			if(second != null){
+				second.toBitmap(words);
+			}
+			result.put(entry.getKey(), Container.best(words));
+		}
+		for(Map.Entry<Long, Container> entry : other.sections.entrySet()){
+			if(!sections.containsKey(entry.getKey())){
+				result.put(entry.getKey(), entry.getValue().copy());
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Creates a mask of every block in both this and the other mask.
+	 *
+	 * @param other - The other mask
+	 * @return the combined mask, bounded by the overlap of both bounds or by the bounds of this mask if they do not overlap
+	 */
+	public MaskSelection intersect(MaskSelection other) {
+		checkWorld(other);
+		boolean overlapping = minX <= other.maxX && maxX >= other.minX && minY <= other.maxY && maxY >= other.minY && minZ <= other.maxZ
+				&& maxZ >= other.minZ;
+		MaskSelection result = new MaskSelection(overlapping ? Cuboid.create(getWorldName(), Math.max(minX, other.minX), Math.max(minY, other.minY),
+				Math.max(minZ, other.minZ), Math.min(maxX, other.maxX), Math.min(maxY, other.maxY), Math.min(maxZ, other.maxZ)) : bounds);
+		if(!overlapping){
+			return result;
+		}
+		combine(other, result, true);
+		return result;
+	}
+	
+	/**
+	 * Creates a mask of every block in this mask but not in the other mask.
+	 *
+	 * @param other - The other mask
+	 * @return the remaining mask, with the bounds of this mask
+	 */
+	public MaskSelection subtract(MaskSelection other) {
+		checkWorld(other);
+		MaskSelection result = new MaskSelection(bounds);
+		combine(other, result, false);
+		return result;
+	}
+	
+	private void combine(MaskSelection other, MaskSelection result, boolean and) {
+		long[] words = new long[SECTION_LONGS];
+		long[] otherWords = new long[SECTION_LONGS];
+		for(Map.Entry<Long, Container> entry : sections.entrySet()){
+			Container second = other.sections.get(entry.getKey());
+			if(second == null){
+				if(!and){
+					result.put(entry.getKey(), entry.getValue().copy());
+				}
+				continue;
+			}
+			Arrays.fill(words, 0);
+			Arrays.fill(otherWords, 0);
+			entry.getValue().toBitmap(words);
+			second.toBitmap(otherWords);
+			for(int i = 0; i < SECTION_LONGS; i++){
+				words[i] = and ? words[i] & otherWords[i] : words[i] & ~otherWords[i];
+			}
+			result.put(entry.getKey(), Container.best(words));
+		}
+	}
+	
+	/**
+	 * Converts every section to its smallest container.
+	 */
+	public void optimize() {
+		long[] words = new long[SECTION_LONGS];
+		for(Map.Entry<Long, Container> entry : sections.entrySet()){
+			Arrays.fill(words, 0);
+			entry.getValue().toBitmap(words);
+			entry.setValue(Container.best(words));
+		}
+	}
+	
+	@Override
+	public double getVolume() {
+		return size;
+	}
+	
+	/**
+	 * @return the amount of blocks in this mask
+	 */
+	public long size() {
+		return size;
+	}
+	
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	/**
+	 * @return the amount of sections holding at least one block
+	 */
+	public int getSectionCount() {
+		return sections.size();
+	}
+	
+	/**
+	 * @return the bytes used by the containers of all sections, without the map overhead
+	 */
+	public long getContainerBytes() {
+		long bytes = 0;
+		for(Container container : sections.values()){
+			bytes += container.byteSize();
+		}
+		return bytes;
+	}
+	
+	@Override
+	public void forEachSpan(int y, int z, SpanConsumer consumer) {
+		if(y < minY || y > maxY || z < minZ || z > maxZ){
+			return;
+		}
+		int rowBase = (y & 15) << 8 | (z & 15) << 4;
+		int start = Integer.MIN_VALUE;
+		int end = Integer.MIN_VALUE;
+		for(int sectionX = minX >> 4; sectionX <= maxX >> 4; sectionX++){
+			Container container = sections.get(sectionKey(sectionX, y >> 4, z >> 4));
+			if(container == null){
+				continue;
+			}
+			int bits = container.row(rowBase);
+			int offset = sectionX << 4;
+			while(bits != 0){
+				int low = Integer.numberOfTrailingZeros(bits);
+				int high = Integer.numberOfTrailingZeros(~(bits >>> low)) + low - 1;
+				bits &= high >= 15 ? 0 : -1 << (high + 1);
+				if(offset + low == end + 1){
+					end = offset + high;
+					continue;
+				}
+				if(start != Integer.MIN_VALUE){
+					consumer.accept(y, z, start, end);
+				}
+				start = offset + low;
+				end = offset + high;
+			}
+		}
+		if(start != Integer.MIN_VALUE){
+			consumer.accept(y, z, start, end);
+		}
+	}
+	
+	/**
+	 * Passes every span to the consumer, ordered by Y, then Z, then X. Only sections holding blocks are visited.
+	 *
+	 * @param consumer - Receives every span
+	 */
+	@Override
+	public void forEachSpan(SpanConsumer consumer) {
+		long[] keys = new long[sections.size()];
+		int count = 0;
+		for(long key : sections.keySet()){
+			keys[count++] = key;
+		}
+		Arrays.sort(keys);
+		//keys sort by y, then z, then x, so every section layer is a consecutive range
+		int layerStart = 0;
+		while(layerStart < keys.length){
+			int sectionY = sectionY(keys[layerStart]);
+			int layerEnd = layerStart;
+			while(layerEnd < keys.length && sectionY(keys[layerEnd]) == sectionY){
+				layerEnd++;
+			}
+			for(int localY = 0; localY < 16; localY++){
+				int y = (sectionY << 4) + localY;
+				for(int i = layerStart; i < layerEnd; ){
+					int sectionZ = sectionZ(keys[i]);
+					int rowEnd = i;
+					while(rowEnd < layerEnd && sectionZ(keys[rowEnd]) == sectionZ){
+						rowEnd++;
+					}
+					for(int localZ = 0; localZ < 16; localZ++){
+						emitRow(y, (sectionZ << 4) + localZ, keys, i, rowEnd, consumer);
+					}
+					i = rowEnd;
+				}
+			}
+			layerStart = layerEnd;
+		}
+	}
+	
+	//emits one row across the given sections, which share their y and z and are sorted by x
+	private void emitRow(int y, int z, long[] keys, int from, int to, SpanConsumer consumer) {
+		int rowBase = (y & 15) << 8 | (z & 15) << 4;
+		int start = Integer.MIN_VALUE;
+		int end = Integer.MIN_VALUE;
+		for(int i = from; i < to; i++){
+			int bits = sections.get(keys[i]).row(rowBase);
+			int offset = sectionX(keys[i]) << 4;
+			while(bits != 0){
+				int low = Integer.numberOfTrailingZeros(bits);
+				int high = Integer.numberOfTrailingZeros(~(bits >>> low)) + low - 1;
+				bits &= high >= 15 ? 0 : -1 << (high + 1);
+				if(offset + low == end + 1){
+					end = offset + high;
+					continue;
+				}
+				if(start != Integer.MIN_VALUE){
+					consumer.accept(y, z, start, end);
+				}
+				start = offset + low;
+				end = offset + high;
+			}
+		}
+		if(start != Integer.MIN_VALUE){
+			consumer.accept(y, z, start, end);
+		}
+	}
+	
+	/**
+	 * Encodes this mask into a compact binary form, containers are optimized first.
+	 *
+	 * @return the encoded mask
+	 */
+	public byte[] encode() {
+		optimize();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try(DataOutputStream out = new DataOutputStream(bytes)){
+			out.writeInt(MAGIC);
+			out.writeUTF(getWorldName());
+			out.writeInt(minX);
+			out.writeInt(minY);
+			out.writeInt(minZ);
+			out.writeInt(maxX);
+			out.writeInt(maxY);
+			out.writeInt(maxZ);
+			out.writeInt(sections.size());
+			for(Map.Entry<Long, Container> entry : sections.entrySet()){
+				out.writeLong(entry.getKey());
+				out.writeByte(entry.getValue().type());
+				entry.getValue().write(out);
+			}
+		} catch(IOException e){
+			//a byte array stream never fails
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+	
+	/**
+	 * Decodes a mask created by {@link #encode()}.
+	 *
+	 * @param data - The encoded mask
+	 * @return the decoded mask
+	 * @throws IllegalArgumentException if the data is not a valid encoded mask
+	 */
+	public static MaskSelection decode(byte[] data) {
+		try(DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))){
+			if(in.readInt() != MAGIC){
+				throw new IllegalArgumentException("Data is not an encoded mask");
+			}
+			String worldName = in.readUTF();
+			MaskSelection mask = new MaskSelection(Cuboid.create(worldName, in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readInt(),
+					in.readInt()));
+			int count = in.readInt();
+			for(int i = 0; i < count; i++){
+				long key = in.readLong();
+				byte type = in.readByte();
+				Container container = switch(type) {
+					case ARRAY -> ArrayContainer.read(in);
+					case BITMAP -> BitmapContainer.read(in);
+					case RUNS -> RunContainer.read(in);
+					default -> throw new IllegalArgumentException("Unknown container type " + type);
+				};
+				mask.put(key, container);
+			}
+			return mask;
+		} catch(IOException e){
+			throw new IllegalArgumentException("Data is not an encoded mask", e);
+		}
+	}
+	
+	@Override
+	public String toString() {
+		return "MaskSelection{bounds=" + bounds + ", size=" + size + ", sections=" + sections.size() + "}";
+	}
+	
+	private void put(long key, Container container) {
+		if(container == null || container.cardinality() == 0){
+			return;
+		}
+		sections.put(key, container);
+		size += container.cardinality();
+	}
+	
+	//sets or clears a span of one row, the touched sections become bitmaps until the next optimize
+	private void setRow(int y, int z, int xStart, int xEnd, boolean value) {
+		if(y < minY || y > maxY || z < minZ || z > maxZ){
+			return;
+		}
+		int from = Math.max(xStart, minX);
+		int to = Math.min(xEnd, maxX);
+		int rowBase = (y & 15) << 8 | (z & 15) << 4;
+		for(int sectionX = from >> 4; sectionX <= to >> 4; sectionX++){
+			int low = Math.max(from, sectionX << 4) & 15;
+			int high = Math.min(to, (sectionX << 4) + 15) & 15;
+			long key = sectionKey(sectionX, y >> 4, z >> 4);
+			Container container = sections.get(key);
+			if(container == null && !value){
+				continue;
+			}
+			BitmapContainer bitmap = container == null ? new BitmapContainer() : container.asBitmap();
+			size -= bitmap.cardinality;
+			bitmap.setRange(rowBase + low, rowBase + high, value);
+			size += bitmap.cardinality;
+			if(bitmap.cardinality == 0){
+				sections.remove(key);
+			} else if(bitmap != container){
+				sections.put(key, bitmap);
+			}
+		}
+	}
+	
+	private boolean inBounds(int x, int y, int z) {
+		return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ;
+	}
+	
+	private void checkWorld(Selection selection) {
+		if(!getWorldName().equals(selection.getWorldName())){
+			throw new IllegalArgumentException("Selection is in world " + selection.getWorldName() + " but the mask is in " + getWorldName());
+		}
+	}
+	
+	private static long sectionKey(int sectionX, int sectionY, int sectionZ) {
+		return (sectionY + SECTION_OFFSET_Y) << 44 | (sectionZ + SECTION_OFFSET_XZ) << 22 | (sectionX + SECTION_OFFSET_XZ);
+	}
+	
+	private static int sectionX(long key) {
+		return (int) ((key & 0x3FFFFF) - SECTION_OFFSET_XZ);
+	}
+	
+	private static int sectionZ(long key) {
+		return (int) (((key >>> 22) & 0x3FFFFF) - SECTION_OFFSET_XZ);
+	}
+	
+	private static int sectionY(long key) {
+		return (int) ((key >>> 44) - SECTION_OFFSET_Y);
+	}
+	
+	private static int bitIndex(int x, int y, int z) {
+		return (y & 15) << 8 | (z & 15) << 4 | (x & 15);
+	}
+	
+	/**
+	 * The blocks of one section, indexed by {@code y << 8 | z << 4 | x} in section local co-ordinates.
+	 */
+	private abstract static class Container{
+		abstract int cardinality();
+		
+		abstract boolean contains(int index);
+		
+		/**
+		 * @return the container holding the result, either this one or a converted one
+		 */
+		abstract Container add(int index);
+		
+		/**
+		 * @return the container holding the result, either this one or a converted one
+		 */
+		abstract Container remove(int index);
+		
+		/**
+		 * Sets the bits of all contained indices in the given words.
+		 */
+		abstract void toBitmap(long[] words);
+		
+		/**
+		 * @return the 16 bits of the row starting at the given index, which is a multiple of 16
+		 */
+		abstract int row(int rowBase);
+		
+		abstract byte type();
+		
+		abstract int byteSize();
+		
+		abstract void write(DataOutput out) throws IOException;
+		
+		abstract Container copy();
+		
+		BitmapContainer asBitmap() {
+			BitmapContainer bitmap = new BitmapContainer();
+			toBitmap(bitmap.words);
+			bitmap.cardinality = cardinality();
+			return bitmap;
+		}
+		
+		/**
+		 * Picks the smallest container for the given bits.
+		 *
+		 * @return the container or null if no bit is set
+		 */
+		static Container best(long[] words) {
+			int cardinality = 0;
+			int runs = 0;
+			long previousTop = 0;
+			for(long word : words){
+				cardinality += Long.bitCount(word);
+				//a run starts at every set bit whose lower neighbour is clear
+				runs += Long.bitCount(word & ~(word << 1 | previousTop));
+				previousTop = word >>> 63;
+			}
+			if(cardinality == 0){
+				return null;
+			}
+			int arrayBytes = cardinality * 2;
+			int runBytes = runs * 4;
+			int bitmapBytes = SECTION_LONGS * 8;
+			if(runBytes < arrayBytes && runBytes < bitmapBytes){
+				return RunContainer.fromBitmap(words, runs);
+			}
+			if(arrayBytes <= bitmapBytes){
+				return ArrayContainer.fromBitmap(words, cardinality);
+			}
+			BitmapContainer bitmap = new BitmapContainer();
+			System.arraycopy(words, 0, bitmap.words, 0, SECTION_LONGS);
+			bitmap.cardinality = cardinality;
+			return bitmap;
+		}
+	}
+	
+	/**
+	 * Sorted array of indices, for sparse sections.
+	 */
+	private static final class ArrayContainer extends Container{
+		private short[] values = new short[4];
+		private int size;
+		
+		static ArrayContainer fromBitmap(long[] words, int cardinality) {
+			ArrayContainer container = new ArrayContainer();
+			container.values = new short[cardinality];
+			for(int i = 0; i < SECTION_LONGS; i++){
+				long word = words[i];
+				while(word != 0){
+					container.values[container.size++] = (short) (i << 6 | Long.numberOfTrailingZeros(word));
+					word &= word - 1;
+				}
+			}
+			return container;
+		}
+		
+		static ArrayContainer read(DataInput in) throws IOException {
+			ArrayContainer container = new ArrayContainer();
+			container.size = in.readUnsignedShort();
+			container.values = new short[Math.max(container.size, 1)];
+			for(int i = 0; i < container.size; i++){
+				container.values[i] = in.readShort();
+			}
+			return container;
+		}
+		
+		@Override
+		int cardinality() {
+			return size;
+		}
+		
+		@Override
+		boolean contains(int index) {
+			return Arrays.binarySearch(values, 0, size, (short) index) >= 0;
+		}
+		
+		@Override
+		Container add(int index) {
+			int position = Arrays.binarySearch(values, 0, size, (short) index);
+			if(position >= 0){
+				return this;
+			}
+			if(size >= MAX_ARRAY_SIZE){
+				BitmapContainer bitmap = asBitmap();
+				return bitmap.add(index);
+			}
+			position = -position - 1;
+			if(size == values.length){
+				values = Arrays.copyOf(values, Math.min(MAX_ARRAY_SIZE, values.length * 2));
+			}
+			System.arraycopy(values, position, values, position + 1, size - position);
+			values[position] = (short) index;
+			size++;
+			return this;
+		}
+		
+		@Override
+		Container remove(int index) {
+			int position = Arrays.binarySearch(values, 0, size, (short) index);
+			if(position >= 0){
+				System.arraycopy(values, position + 1, values, position, size - position - 1);
+				size--;
+			}
+			return this;
+		}
+		
+		@Override
+		void toBitmap(long[] words) {
+			for(int i = 0; i < size; i++){
+				words[values[i] >>> 6] |= 1L << values[i];
+			}
+		}
+		
+		@Override
+		int row(int rowBase) {
+			int position = Arrays.binarySearch(values, 0, size, (short) rowBase);
+			if(position < 0){
+				position = -position - 1;
+			}
+			int bits = 0;
+			for(; position < size && values[position] < rowBase + 16; position++){
+				bits |= 1 << (values[position] - rowBase);
+			}
+			return bits;
+		}
+		
+		@Override
+		byte type() {
+			return ARRAY;
+		}
+		
+		@Override
+		int byteSize() {
+			return values.length * 2;
+		}
+		
+		@Override
+		void write(DataOutput out) throws IOException {
+			out.writeShort(size);
+			for(int i = 0; i < size; i++){
+				out.writeShort(values[i]);
+			}
+		}
+		
+		@Override
+		Container copy() {
+			ArrayContainer copy = new ArrayContainer();
+			copy.values = Arrays.copyOf(values, Math.max(size, 1));
+			copy.size = size;
+			return copy;
+		}
+	}
+	
+	/**
+	 * Plain 4096 bit bitmap, for dense sections without long runs.
+	 */
+	private static final class BitmapContainer extends Container{
+		private final long[] words = new long[SECTION_LONGS];
+		private int cardinality;
+		
+		static BitmapContainer read(DataInput in) throws IOException {
+			BitmapContainer container = new BitmapContainer();
+			for(int i = 0; i < SECTION_LONGS; i++){
+				container.words[i] = in.readLong();
+				container.cardinality += Long.bitCount(container.words[i]);
+			}
+			return container;
+		}
+		
+		@Override
+		int cardinality() {
+			return cardinality;
+		}
+		
+		@Override
+		boolean contains(int index) {
+			return (words[index >>> 6] & (1L << index)) != 0;
+		}
+		
+		@Override
+		Container add(int index) {
+			if(!contains(index)){
+				words[index >>> 6] |= 1L << index;
+				cardinality++;
+			}
+			return this;
+		}
+		
+		@Override
+		Container remove(int index) {
+			if(contains(index)){
+				words[index >>> 6] &= ~(1L << index);
+				cardinality--;
+			}
+			return this;
+		}
+		
+		//sets or clears the inclusive range, which has to lie within one row
+		void setRange(int from, int to, boolean value) {
+			long mask = (-1L >>> (63 - (to & 63))) & (-1L << (from & 63));
+			long word = words[from >>> 6];
+			long updated = value ? word | mask : word & ~mask;
+			cardinality += Long.bitCount(updated) - Long.bitCount(word);
+			words[from >>> 6] = updated;
+		}
+		
+		@Override
+		BitmapContainer asBitmap() {
+			return this;
+		}
+		
+		@Override
+		void toBitmap(long[] words) {
+			for(int i = 0; i < SECTION_LONGS; i++){
+				words[i] |= this.words[i];
+			}
+		}
+		
+		@Override
+		int row(int rowBase) {
+			return (int) (words[rowBase >>> 6] >>> (rowBase & 63)) & 0xFFFF;
+		}
+		
+		@Override
+		byte type() {
+			return BITMAP;
+		}
+		
+		@Override
+		int byteSize() {
+			return SECTION_LONGS * 8;
+		}
+		
+		@Override
+		void write(DataOutput out) throws IOException {
+			for(long word : words){
+				out.writeLong(word);
+			}
+		}
+		
+		@Override
+		Container copy() {
+			BitmapContainer copy = new BitmapContainer();
+			System.arraycopy(words, 0, copy.words, 0, SECTION_LONGS);
+			copy.cardinality = cardinality;
+			return copy;
+		}
+	}
+	
+	/**
+	 * Sorted runs of consecutive indices, for solid sections. Turns into a bitmap when modified.
+	 */
+	private static final class RunContainer extends Container{
+		private short[] starts;
+		/**
+		 * Length of every run minus one.
+		 */
+		private short[] lengths;
+		private int cardinality;
+		
+		static RunContainer fromBitmap(long[] words, int runs) {
+			RunContainer container = new RunContainer();
+			container.starts = new short[runs];
+			container.lengths = new short[runs];
+			int run = 0;
+			int index = 0;
+			while(index < SECTION_LONGS * 64){
+				int start = nextBit(words, index, true);
+				if(start < 0){
+					break;
+				}
+				int end = nextBit(words, start, false);
+				if(end < 0){
+					end = SECTION_LONGS * 64;
+				}
+				container.starts[run] = (short) start;
+				container.lengths[run] = (short) (end - start - 1);
+				container.cardinality += end - start;
+				run++;
+				index = end;
+			}
+			return container;
+		}
+		
+		//finds the next set or clear bit at or after the index, -1 if there is none
+		private static int nextBit(long[] words, int index, boolean set) {
+			int word = index >>> 6;
+			if(word >= SECTION_LONGS){
+				return -1;
+			}
+			long bits = (set ? words[word] : ~words[word]) & (-1L << index);
+			while(bits == 0){
+				if(++word == SECTION_LONGS){
+					return -1;
+				}
+				bits = set ? words[word] : ~words[word];
+			}
+			return word * 64 + Long.numberOfTrailingZeros(bits);
+		}
+		
+		static RunContainer read(DataInput in) throws IOException {
+			RunContainer container = new RunContainer();
+			int runs = in.readUnsignedShort();
+			container.starts = new short[runs];
+			container.lengths = new short[runs];
+			for(int i = 0; i < runs; i++){
+				container.starts[i] = in.readShort();
+				container.lengths[i] = in.readShort();
+				container.cardinality += container.lengths[i] + 1;
+			}
+			return container;
+		}
+		
+		@Override
+		int cardinality() {
+			return cardinality;
+		}
+		
+		@Override
+		boolean contains(int index) {
+			int position = Arrays.binarySearch(starts, (short) index);
+			if(position >= 0){
+				return true;
+			}
+			position = -position - 2;
+			return position >= 0 && index <= starts[position] + lengths[position];
+		}
+		
+		@Override
+		Container add(int index) {
+			return asBitmap().add(index);
+		}
+		
+		@Override
+		Container remove(int index) {
+			return asBitmap().remove(index);
+		}
+		
+		@Override
+		void toBitmap(long[] words) {
+			for(int i = 0; i < starts.length; i++){
+				int from = starts[i];
+				int to = from + lengths[i];
+				for(int word = from >>> 6; word <= to >>> 6; word++){
+					long mask = -1L;
+					if(word == from >>> 6){
+						mask &= -1L << (from & 63);
+					}
+					if(word == to >>> 6){
+						mask &= -1L >>> (63 - (to & 63));
+					}
+					words[word] |= mask;
+				}
+			}
+		}
+		
+		@Override
+		int row(int rowBase) {
+			int rowEnd = rowBase + 15;
+			int position = Arrays.binarySearch(starts, (short) rowBase);
+			if(position < 0){
+				position = Math.max(0, -position - 2);
+			}
+			int bits = 0;
+			for(; position < starts.length && starts[position] <= rowEnd; position++){
+				int from = Math.max(starts[position], rowBase);
+				int to = Math.min(starts[position] + lengths[position], rowEnd);
+				if(from <= to){
+					bits |= (-1 >>> (31 - (to - rowBase))) & (-1 << (from - rowBase));
+				}
+			}
+			return bits;
+		}
+		
+		@Override
+		byte type() {
+			return RUNS;
+		}
+		
+		@Override
+		int byteSize() {
+			return starts.length * 4;
+		}
+		
+		@Override
+		void write(DataOutput out) throws IOException {
+			out.writeShort(starts.length);
+			for(int i = 0; i < starts.length; i++){
+				out.writeShort(starts[i]);
+				out.writeShort(lengths[i]);
+			}
+		}
+		
+		@Override
+		Container copy() {
+			RunContainer copy = new RunContainer();
+			copy.starts = starts.clone();
+			copy.lengths = lengths.clone();
+			copy.cardinality = cardinality;
+			return copy;
+		}
+	}
+}
@@ -0,0 +1,247 @@
+package com.wonkglorg.utilitylib.selection;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+
+/**
+ * A regular grid of identical plots separated by roads. Plots are never stored, a block co-ordinate is mapped to its plot with pure integer
+ * arithmetic and the {@link Cuboid} of a plot is only created on demand, so lookups are constant time and cost no memory per plot.
+ * <p>
+ * Every grid cell is {@code plotSize + roadWidth} blocks wide along X and Z. Starting at the origin, the first {@code plotSize} blocks of a cell
+ * belong to the plot and the remaining {@code roadWidth} blocks are road.
+ */
+@SuppressWarnings("unused")
+public final class PlotGrid{
+	
+	/**
+	 * Plot id returned for co-ordinates that are on a road or outside the height range.
+	 */
+	public static final long ROAD = Long.MIN_VALUE;
+	
+	private final String worldName;
+	private final int originX, originZ;
+	private final int plotSize, roadWidth, cellSize;
+	private final int minY, maxY;
+	
+	private PlotGrid(String worldName, int originX, int originZ, int plotSize, int roadWidth, int minY, int maxY) {
+		if(plotSize <= 0){
+			throw new IllegalArgumentException("Plot size must be positive");
+		}
+		if(roadWidth < 0){
+			throw new IllegalArgumentException("Road width must not be negative");
+		}
+		this.worldName = worldName;
+		this.originX = originX;
+		this.originZ = originZ;
+		this.plotSize = plotSize;
+		this.roadWidth = roadWidth;
+		this.cellSize = plotSize + roadWidth;
+		this.minY = Math.min(minY, maxY);
+		this.maxY = Math.max(minY, maxY);
+	}
+	
+	/**
+	 * Construct a plot grid in the given world name.
+	 *
+	 * @param worldName - The grid's world name
+	 * @param originX - X co-ordinate of the lower corner of plot (0, 0)
+	 * @param originZ - Z co-ordinate of the lower corner of plot (0, 0)
+	 * @param plotSize - Width of a plot along X and Z
+	 * @param roadWidth - Width of the road between two plots
+	 * @param minY - Lowest Y co-ordinate of a plot
+	 * @param maxY - Highest Y co-ordinate of a plot
+	 */
+	public static PlotGrid create(String worldName, int originX, int originZ, int plotSize, int roadWidth, int minY, int maxY) {
+		return new PlotGrid(worldName, originX, originZ, plotSize, roadWidth, minY, maxY);
+	}
+	
+	/**
+	 * Construct a plot grid in the given World.
+	 *
+	 * @param world - The grid's world
+	 * @param originX - X co-ordinate of the lower corner of plot (0, 0)
+	 * @param originZ - Z co-ordinate of the lower corner of plot (0, 0)
+	 * @param plotSize - Width of a plot along X and Z
+	 * @param roadWidth - Width of the road between two plots
+	 * @param minY - Lowest Y co-ordinate of a plot
+	 * @param maxY - Highest Y co-ordinate of a plot
+	 */
+	public static PlotGrid create(World world, int originX, int originZ, int plotSize, int roadWidth, int minY, int maxY) {
+		return new PlotGrid(world.getName(), originX, originZ, plotSize, roadWidth, minY, maxY);
+	}
+	
+	/**
+	 * Packs plot grid co-ordinates into a plot id.
+	 *
+	 * @param plotX - The plot's X index
+	 * @param plotZ - The plot's Z index
+	 * @return the plot id
+	 */
+	public static long toPlotId(int plotX, int plotZ) {
+		return ((long) plotX << 32) | (plotZ & 0xFFFFFFFFL);
+	}
+	
+	/**
+	 * @param plotId - The plot id
+	 * @return the plot's X index
+	 */
+	public static int getPlotX(long plotId) {
+		return (int) (plotId >> 32);
+	}
+	
+	/**
+	 * @param plotId - The plot id
+	 * @return the plot's Z index
+	 */
+	public static int getPlotZ(long plotId) {
+		return (int) plotId;
+	}
+	
+	/**
+	 * Gets the plot id of the column at the given co-ordinates, ignoring the height range.
+	 *
+	 * @param x - The X co-ordinate
+	 * @param z - The Z co-ordinate
+	 * @return the plot id or {@link #ROAD} if the column is part of a road
+	 */
+	public long getPlotId(int x, int z) {
+		int relX = x - originX;
+		int relZ = z - originZ;
+		if(Math.floorMod(relX, cellSize) >= plotSize || Math.floorMod(relZ, cellSize) >= plotSize){
+			return ROAD;
+		}
+		return toPlotId(Math.floorDiv(relX, cellSize), Math.floorDiv(relZ, cellSize));
+	}
+	
+	/**
+	 * Gets the plot id of the block at the given co-ordinates.
+	 *
+	 * @param x - The X co-ordinate
+	 * @param y - The Y co-ordinate
+	 * @param z - The Z co-ordinate
+	 * @return the plot id or {@link #ROAD} if the block is part of a road or outside the height range
+	 */
+	public long getPlotId(int x, int y, int z) {
+		if(y < minY || y > maxY){
+			return ROAD;
+		}
+		return getPlotId(x, z);
+	}
+	
+	/**
+	 * Gets the plot id at the given Location.
+	 *
+	 * @param location - The Location to check
+	 * @return the plot id or {@link #ROAD} if the location is part of a road, outside the height range or in a different world
+	 */
+	public long getPlotId(Location location) {
+		if(location.getWorld() == null || !worldName.equals(location.getWorld().getName())){
+			return ROAD;
+		}
+		return getPlotId(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+	}
+	
+	/**
+	 * Check if the column at the given co-ordinates is part of a road.
+	 *
+	 * @param x - The X co-ordinate
+	 * @param z - The Z co-ordinate
+	 * @return true if the column is part of a road
+	 */
+	public boolean isRoad(int x, int z) {
+		return getPlotId(x, z) == ROAD;
+	}
+	
+	/**
+	 * Gets the Cuboid covering the given plot.
+	 *
+	 * @param plotX - The plot's X index
+	 * @param plotZ - The plot's Z index
+	 * @return A new Cuboid covering the plot
+	 * @throws IllegalArgumentException if the plot does not lie within the int co-ordinate range
+	 */
+	public Cuboid getPlot(int plotX, int plotZ) {
+		long lowerX = originX + (long) plotX * cellSize;
+		long lowerZ = originZ + (long) plotZ * cellSize;
+		long upperX = lowerX + plotSize - 1;
+		long upperZ = lowerZ + plotSize - 1;
+		if(lowerX < Integer.MIN_VALUE || upperX > Integer.MAX_VALUE || lowerZ < Integer.MIN_VALUE || upperZ > Integer.MAX_VALUE){
+			throw new IllegalArgumentException("Plot " + plotX + ", " + plotZ + " is outside of the int co-ordinate range");
+		}
+		return Cuboid.create(worldName, lowerX, minY, lowerZ, upperX, maxY, upperZ);
+	}
+	
+	/**
+	 * Gets the Cuboid covering the given plot.
+	 *
+	 * @param plotId - The plot id
+	 * @return A new Cuboid covering the plot
+	 * @throws IllegalArgumentException if the id is {@link #ROAD} or the plot does not lie within the int co-ordinate range
+	 */
+	public Cuboid getPlot(long plotId) {
+		if(plotId == ROAD){
+			throw new IllegalArgumentException("Road has no plot");
+		}
+		return getPlot(getPlotX(plotId), getPlotZ(plotId));
+	}
+	
+	/**
+	 * Gets the Cuboid of the plot at the given Location.
+	 *
+	 * @param location - The Location to check
+	 * @return A new Cuboid covering the plot or null if the location is not within a plot
+	 */
+	public Cuboid getPlotAt(Location location) {
+		long plotId = getPlotId(location);
+		return plotId == ROAD ? null : getPlot(plotId);
+	}
+	
+	public String getWorldName() {
+		return worldName;
+	}
+	
+	public int getOriginX() {
+		return originX;
+	}
+	
+	public int getOriginZ() {
+		return originZ;
+	}
+	
+	public int getPlotSize() {
+		return plotSize;
+	}
+	
+	public int getRoadWidth() {
+		return roadWidth;
+	}
+	
+	public int getMinY() {
+		return minY;
+	}
+	
+	public int getMaxY() {
+		return maxY;
+	}
+	
+	@Override
+	public String toString() {
+		return "PlotGrid{" +
+			   "worldName='" +
+			   worldName +
+			   '\'' +
+			   ", originX=" +
+			   originX +
+			   ", originZ=" +
+			   originZ +
+			   ", plotSize=" +
+			   plotSize +
+			   ", roadWidth=" +
+			   roadWidth +
+			   ", minY=" +
+			   minY +
+			   ", maxY=" +
+			   maxY +
+			   '}';
+	}
+}
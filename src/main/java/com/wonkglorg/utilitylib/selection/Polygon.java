@@ -1,3 +1,440 @@
 package com.wonkglorg.utilitylib.selection;
 
-public class Polygon{}
\ No newline at end of file
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A polygonal prism, a 2D polygon on the X/Z plane extruded over a range of Y co-ordinates, like polygonal claims in WorldGuard.
+ * <p>
+ * Vertices are block co-ordinates and a block belongs to the prism if its co-ordinate lies inside or on the outline of the polygon. When the
+ * prism is created the inside intervals of every Z row are solved with exact integer arithmetic and stored as a span table, so block
+ * containment is a binary search over the few spans of one row and iteration just replays the table. Continuous points (entity positions,
+ * particles) are tested against the outline with {@link #containsPoint(double, double, double)}, which uses a uniform grid of edge buckets with
+ * a known reference point per cell and only looks at the edges of the cell the point falls into.
+ */
+@SuppressWarnings("unused")
+public final class Polygon implements Selection{
+	
+	private final String worldName;
+	private final int[] pointsX, pointsZ;
+	private final int minX, minY, minZ, maxX, maxY, maxZ;
+	
+	/**
+	 * Start of the spans of every Z row in {@link #spans}, the row at index i ends where row i + 1 starts.
+	 */
+	private final int[] rowStart;
+	/**
+	 * Inclusive start and end X co-ordinates of all spans, two entries per span.
+	 */
+	private final int[] spans;
+	private final long area;
+	
+	private final int gridX, gridZ;
+	private final double cellWidth, cellLength;
+	private final int[] cellStart;
+	private final int[] cellEdges;
+	private final double[] referenceX, referenceZ;
+	private final boolean[] referenceInside;
+	private Cuboid boundingBox;
+	
+	private Polygon(String worldName, int[] pointsX, int[] pointsZ, int minY, int maxY) {
+		if(pointsX.length != pointsZ.length){
+			throw new IllegalArgumentException("Amount of X and Z co-ordinates must match");
+		}
+		if(pointsX.length < 3){
+			throw new IllegalArgumentException("A polygon needs at least 3 points");
+		}
+		this.worldName = worldName;
+		this.pointsX = pointsX;
+		this.pointsZ = pointsZ;
+		this.minY = Math.min(minY, maxY);
+		this.maxY = Math.max(minY, maxY);
+		this.minX = Arrays.stream(pointsX).min().getAsInt();
+		this.maxX = Arrays.stream(pointsX).max().getAsInt();
+		this.minZ = Arrays.stream(pointsZ).min().getAsInt();
+		this.maxZ = Arrays.stream(pointsZ).max().getAsInt();
+		
+		//span table
+		int rows = maxZ - minZ + 1;
+		this.rowStart = new int[rows + 1];
+		int[] table = new int[rows * 4];
+		int used = 0;
+		long area = 0;
+		for(int row = 0; row < rows; row++){
+			rowStart[row] = used / 2;
+			int[] rowSpans = solveRow(minZ + row);
+			if(used + rowSpans.length > table.length){
+				table = Arrays.copyOf(table, Math.max(table.length * 2, used + rowSpans.length));
+			}
+			System.arraycopy(rowSpans, 0, table, used, rowSpans.length);
+			used += rowSpans.length;
+			for(int i = 0; i < rowSpans.length; i += 2){
+				area += rowSpans[i + 1] - rowSpans[i] + 1;
+			}
+		}
+		rowStart[rows] = used / 2;
+		this.spans = Arrays.copyOf(table, used);
+		this.area = area;
+		
+		//edge grid, roughly one cell per edge
+		int cellsPerAxis = Math.max(1, (int) Math.ceil(Math.sqrt(pointsX.length)));
+		this.gridX = maxX > minX ? cellsPerAxis : 1;
+		this.gridZ = maxZ > minZ ? cellsPerAxis : 1;
+		this.cellWidth = Math.max(maxX - minX, 1) / (double) gridX;
+		this.cellLength = Math.max(maxZ - minZ, 1) / (double) gridZ;
+		int cells = gridX * gridZ;
+		this.cellStart = new int[cells + 1];
+		this.referenceX = new double[cells];
+		this.referenceZ = new double[cells];
+		this.referenceInside = new boolean[cells];
+		this.cellEdges = bucketEdges();
+		for(int cell = 0; cell < cells; cell++){
+			placeReference(cell);
+		}
+	}
+	
+	/**
+	 * Construct a polygonal prism in the given world name.
+	 *
+	 * @param worldName - The prism's world name
+	 * @param pointsX - X co-ordinates of the vertices, in outline order
+	 * @param pointsZ - Z co-ordinates of the vertices, in outline order
+	 * @param minY - Lowest Y co-ordinate
+	 * @param maxY - Highest Y co-ordinate
+	 */
+	public static Polygon create(String worldName, int[] pointsX, int[] pointsZ, int minY, int maxY) {
+		return new Polygon(worldName, pointsX.clone(), pointsZ.clone(), minY, maxY);
+	}
+	
+	/**
+	 * Construct a polygonal prism in the given World.
+	 *
+	 * @param world - The prism's world
+	 * @param pointsX - X co-ordinates of the vertices, in outline order
+	 * @param pointsZ - Z co-ordinates of the vertices, in outline order
+	 * @param minY - Lowest Y co-ordinate
+	 * @param maxY - Highest Y co-ordinate
+	 */
+	public static Polygon create(World world, int[] pointsX, int[] pointsZ, int minY, int maxY) {
+		return create(world.getName(), pointsX, pointsZ, minY, maxY);
+	}
+	
+	/**
+	 * Construct a polygonal prism from the block co-ordinates of the given Locations, their Y co-ordinates are ignored.
+	 *
+	 * @param points - The vertices in outline order, all in the same world
+	 * @param minY - Lowest Y co-ordinate
+	 * @param maxY - Highest Y co-ordinate
+	 */
+	public static Polygon create(List<Location> points, int minY, int maxY) {
+		if(points.isEmpty()){
+			throw new IllegalArgumentException("A polygon needs at least 3 points");
+		}
+		String worldName = points.get(0).getWorld().getName();
+		int[] pointsX = new int[points.size()];
+		int[] pointsZ = new int[points.size()];
+		for(int i = 0; i < points.size(); i++){
+			Location point = points.get(i);
+			if(!worldName.equals(point.getWorld().getName())){
+				throw new IllegalArgumentException("All points must be in the same world");
+			}
+			pointsX[i] = point.getBlockX();
+			pointsZ[i] = point.getBlockZ();
+		}
+		return new Polygon(worldName, pointsX, pointsZ, minY, maxY);
+	}
+	
+	@Override
+	public String getWorldName() {
+		return worldName;
+	}
+	
+	@Override
+	public Cuboid getBoundingBox() {
+		if(boundingBox == null){
+			boundingBox = Cuboid.create(worldName, minX, minY, minZ, maxX, maxY, maxZ);
+		}
+		return boundingBox;
+	}
+	
+	@Override
+	public boolean contains(int x, int y, int z) {
+		if(y < minY || y > maxY || z < minZ || z > maxZ || x < minX || x > maxX){
+			return false;
+		}
+		int row = z - minZ;
+		int low = rowStart[row];
+		int high = rowStart[row + 1] - 1;
+		while(low <= high){
+			int mid = (low + high) >>> 1;
+			if(x < spans[mid * 2]){
+				high = mid - 1;
+			} else if(x > spans[mid * 2 + 1]){
+				low = mid + 1;
+			} else {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Check if a continuous point lies inside or on the outline of the polygon, unlike {@link #contains(int, int, int)} this does not round
+	 * the point to a block.
+	 *
+	 * @param x - The X co-ordinate
+	 * @param y - The Y co-ordinate
+	 * @param z - The Z co-ordinate
+	 * @return true if the point is inside the prism
+	 */
+	public boolean containsPoint(double x, double y, double z) {
+		if(y < minY || y >= maxY + 1 || x < minX || x > maxX || z < minZ || z > maxZ){
+			return false;
+		}
+		int cell = Math.min(gridZ - 1, (int) ((z - minZ) / cellLength)) * gridX + Math.min(gridX - 1, (int) ((x - minX) / cellWidth));
+		double refX = referenceX[cell];
+		double refZ = referenceZ[cell];
+		boolean inside = referenceInside[cell];
+		//the segment from the point to the reference point stays inside the cell, so only the edges of the cell can cross it
+		for(int i = cellStart[cell]; i < cellStart[cell + 1]; i++){
+			int edge = cellEdges[i];
+			int next = edge + 1 == pointsX.length ? 0 : edge + 1;
+			double ax = pointsX[edge];
+			double az = pointsZ[edge];
+			double bx = pointsX[next];
+			double bz = pointsZ[next];
+			double side = orientation(ax, az, bx, bz, x, z);
+			if(side == 0 && x >= Math.min(ax, bx) && x <= Math.max(ax, bx) && z >= Math.min(az, bz) && z <= Math.max(az, bz)){
+				return true;
+			}
+			boolean aAbove = orientation(x, z, refX, refZ, ax, az) > 0;
+			boolean bAbove = orientation(x, z, refX, refZ, bx, bz) > 0;
+			if(aAbove != bAbove && (side > 0) != (orientation(ax, az, bx, bz, refX, refZ) > 0)){
+				inside = !inside;
+			}
+		}
+		return inside;
+	}
+	
+	/**
+	 * Check if the exact position of the Location lies inside or on the outline of the polygon.
+	 *
+	 * @param location - The Location to check for
+	 * @return true if the Location is inside the prism
+	 */
+	public boolean containsPoint(Location location) {
+		return worldName.equals(location.getWorld().getName()) && containsPoint(location.getX(), location.getY(), location.getZ());
+	}
+	
+	@Override
+	public double getVolume() {
+		return (double) area * (maxY - minY + 1);
+	}
+	
+	/**
+	 * @return the amount of blocks in one layer
+	 */
+	public long getArea() {
+		return area;
+	}
+	
+	@Override
+	public void forEachSpan(int y, int z, SpanConsumer consumer) {
+		if(y < minY || y > maxY || z < minZ || z > maxZ){
+			return;
+		}
+		int row = z - minZ;
+		for(int i = rowStart[row]; i < rowStart[row + 1]; i++){
+			consumer.accept(y, z, spans[i * 2], spans[i * 2 + 1]);
+		}
+	}
+	
+	@Override
+	public void forEachSpan(SpanConsumer consumer) {
+		for(int y = minY; y <= maxY; y++){
+			for(int row = 0; row < rowStart.length - 1; row++){
+				for(int i = rowStart[row]; i < rowStart[row + 1]; i++){
+					consumer.accept(y, minZ + row, spans[i * 2], spans[i * 2 + 1]);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * @return the amount of vertices
+	 */
+	public int getPointCount() {
+		return pointsX.length;
+	}
+	
+	/**
+	 * @return the X co-ordinates of the vertices in outline order
+	 */
+	public int[] getPointsX() {
+		return pointsX.clone();
+	}
+	
+	/**
+	 * @return the Z co-ordinates of the vertices in outline order
+	 */
+	public int[] getPointsZ() {
+		return pointsZ.clone();
+	}
+	
+	public int getMinY() {
+		return minY;
+	}
+	
+	public int getMaxY() {
+		return maxY;
+	}
+	
+	@Override
+	public String toString() {
+		return "Polygon{world=" + worldName + ", points=" + pointsX.length + ", y=" + minY + ".." + maxY + ", bounds=" + minX + "," + minZ + " -> " + maxX
+				+ "," + maxZ + "}";
+	}
+	
+	/**
+	 * Solves the inside intervals of one row with integer arithmetic. Crossings of the row with the outline are paired with the even-odd rule,
+	 * points exactly on the outline are added separately so vertices and edges always belong to the polygon.
+	 *
+	 * @return sorted and merged spans as start and end pairs
+	 */
+	private int[] solveRow(int z) {
+		List<int[]> intervals = new ArrayList<>();
+		List<double[]> crossings = new ArrayList<>();
+		for(int i = 0; i < pointsX.length; i++){
+			int next = i + 1 == pointsX.length ? 0 : i + 1;
+			long x1 = pointsX[i];
+			long z1 = pointsZ[i];
+			long x2 = pointsX[next];
+			long z2 = pointsZ[next];
+			if(z1 == z2){
+				if(z == z1){
+					intervals.add(new int[]{(int) Math.min(x1, x2), (int) Math.max(x1, x2)});
+				}
+				continue;
+			}
+			if(z < Math.min(z1, z2) || z > Math.max(z1, z2)){
+				continue;
+			}
+			long numerator = (z - z1) * (x2 - x1);
+			long denominator = z2 - z1;
+			if(denominator < 0){
+				numerator = -numerator;
+				denominator = -denominator;
+			}
+			long floor = x1 + Math.floorDiv(numerator, denominator);
+			long ceil = x1 - Math.floorDiv(-numerator, denominator);
+			if(floor == ceil){
+				intervals.add(new int[]{(int) floor, (int) floor});
+			}
+			//half open so a vertex between two edges is crossed once
+			if(z >= Math.min(z1, z2) && z < Math.max(z1, z2)){
+				crossings.add(new double[]{x1 + numerator / (double) denominator, ceil, floor});
+			}
+		}
+		crossings.sort((a, b) -> Double.compare(a[0], b[0]));
+		for(int i = 0; i + 1 < crossings.size(); i += 2){
+			int start = (int) crossings.get(i)[1];
+			int end = (int) crossings.get(i + 1)[2];
+			if(start <= end){
+				intervals.add(new int[]{start, end});
+			}
+		}
+		
+		intervals.sort((a, b) -> Integer.compare(a[0], b[0]));
+		int[] merged = new int[intervals.size() * 2];
+		int count = 0;
+		for(int[] interval : intervals){
+			if(count > 0 && interval[0] <= merged[count - 1] + 1){
+				merged[count - 1] = Math.max(merged[count - 1], interval[1]);
+				continue;
+			}
+			merged[count++] = interval[0];
+			merged[count++] = interval[1];
+		}
+		return Arrays.copyOf(merged, count);
+	}
+	
+	//assigns every edge to all cells its bounding box touches, fills cellStart and returns the edge indices
+	private int[] bucketEdges() {
+		int cells = gridX * gridZ;
+		int[][] ranges = new int[pointsX.length][];
+		for(int edge = 0; edge < pointsX.length; edge++){
+			int next = edge + 1 == pointsX.length ? 0 : edge + 1;
+			int fromX = cellX(Math.min(pointsX[edge], pointsX[next]), -1e-9);
+			int toX = cellX(Math.max(pointsX[edge], pointsX[next]), 1e-9);
+			int fromZ = cellZ(Math.min(pointsZ[edge], pointsZ[next]), -1e-9);
+			int toZ = cellZ(Math.max(pointsZ[edge], pointsZ[next]), 1e-9);
+			ranges[edge] = new int[]{fromX, toX, fromZ, toZ};
+			for(int cz = fromZ; cz <= toZ; cz++){
+				for(int cx = fromX; cx <= toX; cx++){
+					cellStart[cz * gridX + cx + 1]++;
+				}
+			}
+		}
+		for(int cell = 0; cell < cells; cell++){
+			cellStart[cell + 1] += cellStart[cell];
+		}
+		int[] edges = new int[cellStart[cells]];
+		int[] fill = Arrays.copyOf(cellStart, cells);
+		for(int edge = 0; edge < pointsX.length; edge++){
+			int[] range = ranges[edge];
+			for(int cz = range[2]; cz <= range[3]; cz++){
+				for(int cx = range[0]; cx <= range[1]; cx++){
+					edges[fill[cz * gridX + cx]++] = edge;
+				}
+			}
+		}
+		return edges;
+	}
+	
+	private int cellX(double x, double slack) {
+		return Math.max(0, Math.min(gridX - 1, (int) Math.floor((x - minX) / cellWidth + slack)));
+	}
+	
+	private int cellZ(double z, double slack) {
+		return Math.max(0, Math.min(gridZ - 1, (int) Math.floor((z - minZ) / cellLength + slack)));
+	}
+	
+	//picks a reference point near the cell center that is not on the outline and solves whether it is inside
+	private void placeReference(int cell) {
+		double x = minX + (cell % gridX + 0.5) * cellWidth;
+		double z = minZ + (cell / gridX + 0.5) * cellLength;
+		for(int attempt = 1; isOnOutline(x, z); attempt++){
+			x += cellWidth * 0.0123 * attempt;
+			z += cellLength * 0.0371 * attempt;
+		}
+		referenceX[cell] = x;
+		referenceZ[cell] = z;
+		boolean inside = false;
+		for(int i = 0, j = pointsX.length - 1; i < pointsX.length; j = i++){
+			if((pointsZ[i] > z) != (pointsZ[j] > z) && x < (pointsX[j] - pointsX[i]) * (z - pointsZ[i]) / (double) (pointsZ[j] - pointsZ[i]) + pointsX[i]){
+				inside = !inside;
+			}
+		}
+		referenceInside[cell] = inside;
+	}
+	
+	//uses a tolerance as the reference point is not an exact co-ordinate, being close to the outline is enough to pick another one
+	private boolean isOnOutline(double x, double z) {
+		for(int i = 0, j = pointsX.length - 1; i < pointsX.length; j = i++){
+			if(Math.abs(orientation(pointsX[j], pointsZ[j], pointsX[i], pointsZ[i], x, z)) < 1e-6 && x >= Math.min(pointsX[i], pointsX[j])
+					&& x <= Math.max(pointsX[i], pointsX[j]) && z >= Math.min(pointsZ[i], pointsZ[j]) && z <= Math.max(pointsZ[i], pointsZ[j])){
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	//positive if c is left of the line from a to b, negative if right, 0 if on it
+	private static double orientation(double ax, double az, double bx, double bz, double cx, double cz) {
+		return (bx - ax) * (cz - az) - (bz - az) * (cx - ax);
+	}
+}
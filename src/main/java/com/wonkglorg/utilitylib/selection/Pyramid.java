@@ -1,3 +1,283 @@
 package com.wonkglorg.utilitylib.selection;
 
-public class Pyramid{}
\ No newline at end of file
+import org.bukkit.Location;
+import org.bukkit.block.BlockFace;
+
+/**
+ * Pyramids and frustums with a rectangular base, pointing along any axis, solid or hollow.
+ * <p>
+ * The shape is a stack of rectangular layers starting at the base, every layer shrinks by {@code step} blocks on each side. Layer bounds are
+ * plain arithmetic on the layer index, so containment is a handful of comparisons and span iteration solves every row directly without
+ * testing blocks outside the shape or allocating anything per block. A hollow shape keeps its base, its top layer and a wall of
+ * {@code max(step, 1)} blocks per layer.
+ */
+@SuppressWarnings("unused")
+public final class Pyramid implements Selection{
+	
+	private static final int AXIS_X = 0, AXIS_Y = 1, AXIS_Z = 2;
+	
+	private final String worldName;
+	private final BlockFace direction;
+	private final int axis;
+	private final int sign;
+	/**
+	 * Co-ordinate of the base layer along the axis.
+	 */
+	private final int base;
+	/**
+	 * Bounds of the base layer on the two other axes, A is X for the Y and Z axis and Y for the X axis, B is the remaining axis.
+	 */
+	private final int minA, maxA, minB, maxB;
+	private final int height;
+	private final int step;
+	private final int wall;
+	private final boolean hollow;
+	private Cuboid boundingBox;
+	
+	private Pyramid(String worldName, BlockFace direction, int base, int minA, int maxA, int minB, int maxB, int height, int step, boolean hollow) {
+		if(height <= 0){
+			throw new IllegalArgumentException("Height must be positive");
+		}
+		if(step < 0){
+			throw new IllegalArgumentException("Step must not be negative");
+		}
+		this.worldName = worldName;
+		this.direction = direction;
+		this.axis = axisOf(direction);
+		this.sign = direction == BlockFace.DOWN || direction == BlockFace.NORTH || direction == BlockFace.WEST ? -1 : 1;
+		this.base = base;
+		this.minA = minA;
+		this.maxA = maxA;
+		this.minB = minB;
+		this.maxB = maxB;
+		this.step = step;
+		this.wall = Math.max(step, 1);
+		this.hollow = hollow;
+		//layers past the apex would be empty
+		this.height = step == 0 ? height : Math.min(height, Math.min(maxA - minA, maxB - minB) / (2 * step) + 1);
+	}
+	
+	/**
+	 * Construct a pyramid or frustum on the given base. The base layer is the face of the Cuboid opposite to the direction, for example the
+	 * lowest layer for {@link BlockFace#UP}, the extent of the Cuboid along the axis is ignored.
+	 *
+	 * @param base - The Cuboid providing the base rectangle
+	 * @param direction - The direction the layers stack towards, one of UP, DOWN, NORTH, SOUTH, EAST or WEST
+	 * @param height - The maximum amount of layers, the shape stops earlier if it reaches its apex
+	 * @param step - How many blocks every layer shrinks on each side, 0 for a prism
+	 * @param hollow - If only the outer shell is part of the shape
+	 */
+	public static Pyramid create(Cuboid base, BlockFace direction, int height, int step, boolean hollow) {
+		int lowerX = (int) base.getLowerX();
+		int lowerY = (int) base.getLowerY();
+		int lowerZ = (int) base.getLowerZ();
+		int upperX = (int) base.getUpperX();
+		int upperY = (int) base.getUpperY();
+		int upperZ = (int) base.getUpperZ();
+		return switch(axisOf(direction)) {
+			case AXIS_X -> new Pyramid(base.getWorldName(), direction, direction == BlockFace.EAST ? lowerX : upperX, lowerY, upperY, lowerZ, upperZ,
+					height, step, hollow);
+			case AXIS_Y -> new Pyramid(base.getWorldName(), direction, direction == BlockFace.UP ? lowerY : upperY, lowerX, upperX, lowerZ, upperZ,
+					height, step, hollow);
+			default -> new Pyramid(base.getWorldName(), direction, direction == BlockFace.SOUTH ? lowerZ : upperZ, lowerX, upperX, lowerY, upperY,
+					height, step, hollow);
+		};
+	}
+	
+	/**
+	 * Construct a complete square pyramid, with a base of {@code 2 * radius + 1} blocks centered on the Location and shrinking by one block per
+	 * layer up to a single block apex.
+	 *
+	 * @param center - The center of the base
+	 * @param radius - The distance from the center to the edge of the base
+	 * @param direction - The direction the apex points to
+	 * @param hollow - If only the outer shell is part of the shape
+	 */
+	public static Pyramid create(Location center, int radius, BlockFace direction, boolean hollow) {
+		if(radius < 0){
+			throw new IllegalArgumentException("Radius must not be negative");
+		}
+		int x = center.getBlockX();
+		int y = center.getBlockY();
+		int z = center.getBlockZ();
+		String worldName = center.getWorld().getName();
+		return switch(axisOf(direction)) {
+			case AXIS_X -> new Pyramid(worldName, direction, x, y - radius, y + radius, z - radius, z + radius, radius + 1, 1, hollow);
+			case AXIS_Y -> new Pyramid(worldName, direction, y, x - radius, x + radius, z - radius, z + radius, radius + 1, 1, hollow);
+			default -> new Pyramid(worldName, direction, z, x - radius, x + radius, y - radius, y + radius, radius + 1, 1, hollow);
+		};
+	}
+	
+	private static int axisOf(BlockFace direction) {
+		return switch(direction) {
+			case EAST, WEST -> AXIS_X;
+			case UP, DOWN -> AXIS_Y;
+			case NORTH, SOUTH -> AXIS_Z;
+			default -> throw new IllegalArgumentException("Direction must be one of UP, DOWN, NORTH, SOUTH, EAST or WEST, got " + direction);
+		};
+	}
+	
+	@Override
+	public String getWorldName() {
+		return worldName;
+	}
+	
+	@Override
+	public Cuboid getBoundingBox() {
+		if(boundingBox == null){
+			int top = base + sign * (height - 1);
+			int low = Math.min(base, top);
+			int high = Math.max(base, top);
+			boundingBox = switch(axis) {
+				case AXIS_X -> Cuboid.create(worldName, low, minA, minB, high, maxA, maxB);
+				case AXIS_Y -> Cuboid.create(worldName, minA, low, minB, maxA, high, maxB);
+				default -> Cuboid.create(worldName, minA, minB, low, maxA, maxB, high);
+			};
+		}
+		return boundingBox;
+	}
+	
+	@Override
+	public boolean contains(int x, int y, int z) {
+		int layer;
+		int a;
+		int b;
+		switch(axis) {
+			case AXIS_X -> {
+				layer = (x - base) * sign;
+				a = y;
+				b = z;
+			}
+			case AXIS_Y -> {
+				layer = (y - base) * sign;
+				a = x;
+				b = z;
+			}
+			default -> {
+				layer = (z - base) * sign;
+				a = x;
+				b = y;
+			}
+		}
+		if(layer < 0 || layer >= height){
+			return false;
+		}
+		int inset = layer * step;
+		int distance = Math.min(Math.min(a - minA, maxA - a), Math.min(b - minB, maxB - b)) - inset;
+		if(distance < 0){
+			return false;
+		}
+		return !hollow || isCap(layer) || distance < wall;
+	}
+	
+	@Override
+	public double getVolume() {
+		long volume = 0;
+		for(int layer = 0; layer < height; layer++){
+			long sizeA = maxA - minA + 1 - 2L * layer * step;
+			long sizeB = maxB - minB + 1 - 2L * layer * step;
+			volume += sizeA * sizeB;
+			if(hollow && !isCap(layer)){
+				volume -= Math.max(0, sizeA - 2L * wall) * Math.max(0, sizeB - 2L * wall);
+			}
+		}
+		return volume;
+	}
+	
+	@Override
+	public void forEachSpan(int y, int z, SpanConsumer consumer) {
+		if(axis == AXIS_X){
+			rowAlongAxis(y, z, consumer);
+		} else if(axis == AXIS_Y){
+			rowInLayer(y, z, (y - base) * sign, z, consumer);
+		} else {
+			rowInLayer(y, z, (z - base) * sign, y, consumer);
+		}
+	}
+	
+	//the row lies inside one layer, the X range is the layer's A range
+	private void rowInLayer(int y, int z, int layer, int b, SpanConsumer consumer) {
+		if(layer < 0 || layer >= height){
+			return;
+		}
+		int inset = layer * step;
+		int low = minA + inset;
+		int high = maxA - inset;
+		int distanceB = Math.min(b - minB, maxB - b) - inset;
+		if(distanceB < 0){
+			return;
+		}
+		if(!hollow || isCap(layer) || distanceB < wall || high - low + 1 <= 2 * wall){
+			consumer.accept(y, z, low, high);
+			return;
+		}
+		consumer.accept(y, z, low, low + wall - 1);
+		consumer.accept(y, z, high - wall + 1, high);
+	}
+	
+	//the row runs along the axis and crosses consecutive layers starting at the base
+	private void rowAlongAxis(int y, int z, SpanConsumer consumer) {
+		int distance = Math.min(Math.min(y - minA, maxA - y), Math.min(z - minB, maxB - z));
+		if(distance < 0){
+			return;
+		}
+		int last = step == 0 ? height - 1 : Math.min(height - 1, distance / step);
+		if(!hollow){
+			emitLayers(y, z, 0, last, consumer);
+			return;
+		}
+		//the base and the last layer are always shell, layers in between only once the wall is reached
+		int firstWall = distance < wall ? 0 : step == 0 ? Integer.MAX_VALUE : (distance - wall) / step + 1;
+		int from = Math.min(Math.max(firstWall, 1), last);
+		if(from <= 1){
+			emitLayers(y, z, 0, last, consumer);
+			return;
+		}
+		//base block and wall run are separate, emit them in ascending X order
+		if(sign > 0){
+			emitLayers(y, z, 0, 0, consumer);
+			emitLayers(y, z, from, last, consumer);
+		} else {
+			emitLayers(y, z, from, last, consumer);
+			emitLayers(y, z, 0, 0, consumer);
+		}
+	}
+	
+	private void emitLayers(int y, int z, int fromLayer, int toLayer, SpanConsumer consumer) {
+		int from = base + sign * fromLayer;
+		int to = base + sign * toLayer;
+		consumer.accept(y, z, Math.min(from, to), Math.max(from, to));
+	}
+	
+	private boolean isCap(int layer) {
+		return layer == 0 || layer == height - 1;
+	}
+	
+	/**
+	 * @return the direction the layers stack towards
+	 */
+	public BlockFace getDirection() {
+		return direction;
+	}
+	
+	/**
+	 * @return the amount of layers, limited by the apex
+	 */
+	public int getHeight() {
+		return height;
+	}
+	
+	public int getStep() {
+		return step;
+	}
+	
+	public boolean isHollow() {
+		return hollow;
+	}
+	
+	@Override
+	public String toString() {
+		return "Pyramid{world=" + worldName + ", direction=" + direction + ", base=" + base + ", bounds=" + minA + ".." + maxA + "/" + minB + ".."
+				+ maxB + ", height=" + height + ", step=" + step + (hollow ? ", hollow}" : "}");
+	}
+}
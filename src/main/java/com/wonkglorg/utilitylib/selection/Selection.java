@@ -1,3 +1,162 @@
 package com.wonkglorg.utilitylib.selection;
 
-public interface Selection{}
\ No newline at end of file
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+
+/**
+ * A set of blocks in one world. Besides single block containment every selection can describe itself as spans, runs of consecutive blocks
+ * along the X axis within one (y, z) row, so bulk consumers (editing, scanning, particles) handle every shape with a plain loop over each span
+ * instead of a virtual call per block.
+ */
+@SuppressWarnings("unused")
+public interface Selection{
+	
+	/**
+	 * @return the name of the world this selection is in
+	 */
+	String getWorldName();
+	
+	/**
+	 * Get the selection's world.
+	 *
+	 * @return The World object representing this selection's world
+	 * @throws IllegalStateException if the world is not loaded
+	 */
+	default World getWorld() {
+		World world = Bukkit.getWorld(getWorldName());
+		if(world == null){
+			throw new IllegalStateException("World '" + getWorldName() + "' is not loaded");
+		}
+		return world;
+	}
+	
+	/**
+	 * Get the smallest Cuboid containing every block of this selection.
+	 *
+	 * @return the bounding box
+	 */
+	Cuboid getBoundingBox();
+	
+	/**
+	 * Check if the given block co-ordinates are part of this selection.
+	 *
+	 * @param x - The X co-ordinate
+	 * @param y - The Y co-ordinate
+	 * @param z - The Z co-ordinate
+	 * @return true if the block is part of this selection
+	 */
+	boolean contains(int x, int y, int z);
+	
+	/**
+	 * Check if the given Location is part of this selection.
+	 *
+	 * @param location - The Location to check for
+	 * @return true if the Location is in this selection's world and its block is part of the selection
+	 */
+	default boolean contains(Location location) {
+		if(!getWorldName().equals(location.getWorld().getName())){
+			return false;
+		}
+		return contains(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+	}
+	
+	/**
+	 * Check if the given Block is part of this selection.
+	 *
+	 * @param block - The Block to check for
+	 * @return true if the Block is part of this selection
+	 */
+	default boolean contains(Block block) {
+		return getWorldName().equals(block.getWorld().getName()) && contains(block.getX(), block.getY(), block.getZ());
+	}
+	
+	/**
+	 * Get the volume of this selection.
+	 *
+	 * @return The amount of blocks in this selection
+	 */
+	double getVolume();
+	
+	/**
+	 * Passes the spans of a single row to the consumer, in ascending X order without overlaps. Rows outside the selection have no spans.
+	 *
+	 * @param y - The Y co-ordinate of the row
+	 * @param z - The Z co-ordinate of the row
+	 * @param consumer - Receives every span of the row
+	 */
+	void forEachSpan(int y, int z, SpanConsumer consumer);
+	
+	/**
+	 * Passes every span of this selection to the consumer, ordered by Y, then Z, then X.
+	 *
+	 * @param consumer - Receives every span
+	 */
+	default void forEachSpan(SpanConsumer consumer) {
+		Cuboid box = getBoundingBox();
+		int minY = (int) box.getLowerY();
+		int maxY = (int) box.getUpperY();
+		int minZ = (int) box.getLowerZ();
+		int maxZ = (int) box.getUpperZ();
+		for(int y = minY; y <= maxY; y++){
+			for(int z = minZ; z <= maxZ; z++){
+				forEachSpan(y, z, consumer);
+			}
+		}
+	}
+	
+	/**
+	 * Combines this selection with another one, see {@link CompositeSelection}.
+	 *
+	 * @param other - The selection to add
+	 * @return every block in either selection
+	 */
+	default Selection union(Selection other) {
+		return CompositeSelection.union(this, other);
+	}
+	
+	/**
+	 * Combines this selection with another one, see {@link CompositeSelection}.
+	 *
+	 * @param other - The selection to intersect with
+	 * @return every block in both selections
+	 */
+	default Selection intersect(Selection other) {
+		return CompositeSelection.intersection(this, other);
+	}
+	
+	/**
+	 * Combines this selection with another one, see {@link CompositeSelection}.
+	 *
+	 * @param other - The selection to remove
+	 * @return every block of this selection that is not in the other one
+	 */
+	default Selection subtract(Selection other) {
+		return CompositeSelection.difference(this, other);
+	}
+	
+	/**
+	 * Combines this selection with another one, see {@link CompositeSelection}.
+	 *
+	 * @param other - The other selection
+	 * @return every block in exactly one of the selections
+	 */
+	default Selection xor(Selection other) {
+		return CompositeSelection.xor(this, other);
+	}
+	
+	/**
+	 * Receives a run of consecutive blocks along the X axis.
+	 */
+	@FunctionalInterface
+	interface SpanConsumer{
+		/**
+		 * @param y - The Y co-ordinate of the row
+		 * @param z - The Z co-ordinate of the row
+		 * @param xStart - The first X co-ordinate of the span, inclusive
+		 * @param xEnd - The last X co-ordinate of the span, inclusive
+		 */
+		void accept(int y, int z, int xStart, int xEnd);
+	}
+}
@@ -1,14 +1,28 @@
 package com.wonkglorg.utilitylib.selection;
 
 import org.bukkit.Location;
+import org.bukkit.Particle;
+import org.bukkit.entity.Player;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
 
 /**
  * @author Wonkglorg
  */
 @SuppressWarnings("unused")
 public final class SelectionBuilder{
+	/**
+	 * Default minimum time between two preview redraws for the same viewer.
+	 */
+	public static final long DEFAULT_PREVIEW_INTERVAL = 100;
 	private Cuboid cuboid;
 	private Location location1, location2;
+	private final Map<UUID, PreviewSession> previews = new LinkedHashMap<>();
+	private long previewInterval = DEFAULT_PREVIEW_INTERVAL;
 	
 	public SelectionBuilder() {
 	}
@@ -18,20 +32,32 @@ public final class SelectionBuilder{
 		this.location2 = location2;
 	}
 	
+	/**
+	 * Builds the Cuboid between both corners, the result is reused until a corner changes.
+	 *
+	 * @return the Cuboid or null if a corner is missing
+	 */
 	public Cuboid build() {
 		if(location1 == null || location2 == null){
 			return null;
 		}
-		return new Cuboid(location1, location2);
+		if(cuboid == null){
+			cuboid = Cuboid.create(location1, location2);
+		}
+		return cuboid;
 	}
 	
 	public SelectionBuilder setCorner1(Location location) {
 		this.location1 = location;
+		this.cuboid = null;
+		updatePreviews();
 		return this;
 	}
 	
 	public SelectionBuilder setCorner2(Location location) {
 		this.location2 = location;
+		this.cuboid = null;
+		updatePreviews();
 		return this;
 	}
 	
@@ -42,4 +68,191 @@ public final class SelectionBuilder{
 	public Location getLocation2() {
 		return location2;
 	}
-}
\ No newline at end of file
+	
+	/**
+	 * Starts showing the outline of this selection to the viewer, replacing an earlier preview of the same viewer. The outline is drawn
+	 * right away, afterwards only the edge points that changed are sent whenever a corner moves.
+	 *
+	 * @param viewer - The player to show the outline to
+	 * @param particle - The particle to draw the outline with
+	 * @return this builder
+	 */
+	public SelectionBuilder showPreview(Player viewer, Particle particle) {
+		PreviewSession session = new PreviewSession(viewer, particle);
+		previews.put(viewer.getUniqueId(), session);
+		session.draw(this, System.currentTimeMillis());
+		return this;
+	}
+	
+	/**
+	 * Stops showing the outline to the viewer. Particles already sent fade on their own.
+	 *
+	 * @param viewer - The player to stop the preview for
+	 */
+	public void hidePreview(Player viewer) {
+		previews.remove(viewer.getUniqueId());
+	}
+	
+	public void hideAllPreviews() {
+		previews.clear();
+	}
+	
+	public boolean isPreviewing(Player viewer) {
+		return previews.containsKey(viewer.getUniqueId());
+	}
+	
+	/**
+	 * Sets the minimum time between two redraws for the same viewer. Corner changes within that time are drawn by the next call to
+	 * {@link #updatePreviews()} once it has passed, intermediate corners are skipped.
+	 *
+	 * @param millis - The interval in milliseconds, 0 to redraw on every change
+	 * @return this builder
+	 */
+	public SelectionBuilder setPreviewInterval(long millis) {
+		if(millis < 0){
+			throw new IllegalArgumentException("Preview interval must not be negative");
+		}
+		this.previewInterval = millis;
+		return this;
+	}
+	
+	public long getPreviewInterval() {
+		return previewInterval;
+	}
+	
+	/**
+	 * Draws pending changes for every viewer whose interval has passed and drops viewers that went offline. Corner changes call this
+	 * themselves, a repeating task should call it as well so the last change of a drag is drawn once the interval passes.
+	 */
+	public void updatePreviews() {
+		long now = System.currentTimeMillis();
+		Iterator<PreviewSession> iterator = previews.values().iterator();
+		while(iterator.hasNext()){
+			PreviewSession session = iterator.next();
+			if(!session.viewer.isOnline()){
+				iterator.remove();
+				continue;
+			}
+			session.draw(this, now);
+		}
+	}
+	
+	/**
+	 * Sends the complete outline to every viewer again, particles fade on the client so a repeating task should call this every few seconds
+	 * to keep the preview visible.
+	 */
+	public void refreshPreviews() {
+		long now = System.currentTimeMillis();
+		for(PreviewSession session : previews.values()){
+			session.points = PreviewSession.EMPTY;
+			session.lastDraw = 0;
+			session.draw(this, now);
+		}
+	}
+	
+	/**
+	 * Outline drawn for a single viewer. The outline is kept as a sorted array of packed block positions so a redraw is a merge of the old and
+	 * the new array, sending only the points that were not drawn before.
+	 */
+	private static final class PreviewSession{
+		private static final long[] EMPTY = new long[0];
+		private final Player viewer;
+		private final Particle particle;
+		private long[] points = EMPTY;
+		private Cuboid drawn;
+		private long lastDraw;
+		
+		private PreviewSession(Player viewer, Particle particle) {
+			this.viewer = viewer;
+			this.particle = particle;
+		}
+		
+		private void draw(SelectionBuilder builder, long now) {
+			if(now - lastDraw < builder.previewInterval){
+				return;
+			}
+			Cuboid current;
+			if(builder.location1 == null || builder.location2 == null || builder.location1.getWorld() == null
+					|| !builder.location1.getWorld().equals(builder.location2.getWorld())){
+				current = null;
+			} else {
+				current = builder.build();
+			}
+			if(current == drawn && (current == null || points != EMPTY)){
+				return;
+			}
+			drawn = current;
+			lastDraw = now;
+			if(current == null){
+				points = EMPTY;
+				return;
+			}
+			long[] updated = outline(current);
+			int old = 0;
+			for(long point : updated){
+				while(old < points.length && points[old] < point){
+					old++;
+				}
+				if(old < points.length && points[old] == point){
+					continue;
+				}
+				viewer.spawnParticle(particle, unpackX(point), unpackY(point), unpackZ(point), 0, 0, 0, 0, 0, null, true);
+			}
+			points = updated;
+		}
+		
+		//same points as Cuboid#outline, sorted and without the duplicates at the corners
+		private static long[] outline(Cuboid cuboid) {
+			int lowerX = (int) cuboid.getLowerX();
+			int lowerY = (int) cuboid.getLowerY();
+			int lowerZ = (int) cuboid.getLowerZ();
+			int upperX = (int) cuboid.getUpperX();
+			int upperY = (int) cuboid.getUpperY();
+			int upperZ = (int) cuboid.getUpperZ();
+			long[] result = new long[4 * ((upperX - lowerX + 1) + (upperY - lowerY + 1) + (upperZ - lowerZ + 1))];
+			int size = 0;
+			for(int x = lowerX; x <= upperX; x++){
+				result[size++] = pack(x, lowerY, lowerZ);
+				result[size++] = pack(x, lowerY, upperZ);
+				result[size++] = pack(x, upperY, lowerZ);
+				result[size++] = pack(x, upperY, upperZ);
+			}
+			for(int y = lowerY; y <= upperY; y++){
+				result[size++] = pack(lowerX, y, lowerZ);
+				result[size++] = pack(lowerX, y, upperZ);
+				result[size++] = pack(upperX, y, lowerZ);
+				result[size++] = pack(upperX, y, upperZ);
+			}
+			for(int z = lowerZ; z <= upperZ; z++){
+				result[size++] = pack(lowerX, lowerY, z);
+				result[size++] = pack(upperX, lowerY, z);
+				result[size++] = pack(lowerX, upperY, z);
+				result[size++] = pack(upperX, upperY, z);
+			}
+			Arrays.sort(result);
+			int unique = 0;
+			for(int i = 0; i < size; i++){
+				if(unique == 0 || result[unique - 1] != result[i]){
+					result[unique++] = result[i];
+				}
+			}
+			return Arrays.copyOf(result, unique);
+		}
+		
+		private static long pack(int x, int y, int z) {
+			return ((long) x & 0x3FFFFFF) << 38 | ((long) z & 0x3FFFFFF) << 12 | (y & 0xFFF);
+		}
+		
+		private static int unpackX(long packed) {
+			return (int) (packed >> 38);
+		}
+		
+		private static int unpackY(long packed) {
+			return (int) (packed << 52 >> 52);
+		}
+		
+		private static int unpackZ(long packed) {
+			return (int) (packed << 26 >> 38);
+		}
+	}
+}
@@ -0,0 +1,484 @@
+package com.wonkglorg.utilitylib.selection;
+
+import org.bukkit.Location;
+import org.bukkit.block.Block;
+
+/**
+ * Sparse set of block positions bounded by a {@link Cuboid}, meant for per block flags like "player placed" or "protected" (use one store per
+ * flag). Positions are grouped by 16x16x16 chunk section and every section is a 4096 bit bitset that only gets allocated once a voxel inside it
+ * is set and is released again once it becomes empty, so memory is proportional to the occupied volume and no position gets boxed.
+ * <p>
+ * Sections are kept in an open addressing table keyed by their packed section co-ordinates, the bounds only limit which positions are accepted.
+ * <p>
+ * Not thread safe.
+ */
+@SuppressWarnings("unused")
+public final class VoxelStore{
+	
+	/**
+	 * Amount of longs needed for the 4096 bits of a section.
+	 */
+	private static final int SECTION_LONGS = 64;
+	private static final int INITIAL_CAPACITY = 16;
+	//section co-ordinates are offset so packed keys are never negative, the same layout as the keys of MaskSelection
+	private static final long SECTION_OFFSET_XZ = 1L << 21;
+	private static final long SECTION_OFFSET_Y = 1L << 9;
+	
+	private final Cuboid bounds;
+	private final int minX, minY, minZ, maxX, maxY, maxZ;
+	
+	//open addressing table with linear probing, a slot is free if its section is null
+	private long[] keys;
+	private long[][] sections;
+	/**
+	 * Amount of set voxels per section, used to release sections once they are empty.
+	 */
+	private short[] counts;
+	private int sectionCount;
+	private long size;
+	
+	/**
+	 * Creates an empty store for positions inside the given Cuboid.
+	 *
+	 * @param bounds - The Cuboid bounding all positions of this store
+	 */
+	public VoxelStore(Cuboid bounds) {
+		if(bounds == null){
+			throw new IllegalArgumentException("Cuboid must not be null");
+		}
+		this.bounds = bounds;
+		this.minX = (int) bounds.getLowerX();
+		this.minY = (int) bounds.getLowerY();
+		this.minZ = (int) bounds.getLowerZ();
+		this.maxX = (int) bounds.getUpperX();
+		this.maxY = (int) bounds.getUpperY();
+		this.maxZ = (int) bounds.getUpperZ();
+		if(minX >> 4 < -SECTION_OFFSET_XZ || maxX >> 4 >= SECTION_OFFSET_XZ || minZ >> 4 < -SECTION_OFFSET_XZ || maxZ >> 4 >= SECTION_OFFSET_XZ
+		   || minY >> 4 < -SECTION_OFFSET_Y || maxY >> 4 >= SECTION_OFFSET_Y){
+			throw new IllegalArgumentException("Cuboid " + bounds + " is outside of the supported co-ordinate range");
+		}
+		allocateTable(INITIAL_CAPACITY);
+	}
+	
+	/**
+	 * Check if the voxel at the given co-ordinates is set.
+	 *
+	 * @param x - The X co-ordinate
+	 * @param y - The Y co-ordinate
+	 * @param z - The Z co-ordinate
+	 * @return true if the voxel is set, false if it is not set or outside the bounds
+	 */
+	public boolean get(int x, int y, int z) {
+		if(!inBounds(x, y, z)){
+			return false;
+		}
+		int slot = findSlot(sectionKey(x >> 4, y >> 4, z >> 4));
+		if(slot < 0){
+			return false;
+		}
+		int bit = bitIndex(x, y, z);
+		return (sections[slot][bit >>> 6] & (1L << bit)) != 0;
+	}
+	
+	/**
+	 * Check if the given Block is set.
+	 *
+	 * @param block - The Block to check
+	 * @return true if the voxel is set
+	 */
+	public boolean get(Block block) {
+		return bounds.contains(block) && get(block.getX(), block.getY(), block.getZ());
+	}
+	
+	/**
+	 * Check if the voxel at the given Location is set.
+	 *
+	 * @param location - The Location to check
+	 * @return true if the voxel is set
+	 */
+	public boolean get(Location location) {
+		return bounds.contains(location) && get(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+	}
+	
+	/**
+	 * Sets the voxel at the given co-ordinates.
+	 *
+	 * @param x - The X co-ordinate
+	 * @param y - The Y co-ordinate
+	 * @param z - The Z co-ordinate
+	 * @return true if the voxel was not set before
+	 * @throws IllegalArgumentException if the position is outside the bounds
+	 */
+	public boolean set(int x, int y, int z) {
+		if(!inBounds(x, y, z)){
+			throw new IllegalArgumentException("Position " + x + "," + y + "," + z + " is outside of " + bounds);
+		}
+		long key = sectionKey(x >> 4, y >> 4, z >> 4);
+		int slot = findSlot(key);
+		if(slot < 0){
+			slot = insertSection(key);
+		}
+		long[] section = sections[slot];
+		int bit = bitIndex(x, y, z);
+		long mask = 1L << bit;
+		if((section[bit >>> 6] & mask) != 0){
+			return false;
+		}
+		section[bit >>> 6] |= mask;
+		counts[slot]++;
+		size++;
+		return true;
+	}
+	
+	/**
+	 * Sets or clears the voxel at the given co-ordinates.
+	 *
+	 * @param x - The X co-ordinate
+	 * @param y - The Y co-ordinate
+	 * @param z - The Z co-ordinate
+	 * @param value - true to set the voxel, false to clear it
+	 * @return true if the voxel changed
+	 */
+	public boolean set(int x, int y, int z, boolean value) {
+		return value ? set(x, y, z) : clear(x, y, z);
+	}
+	
+	/**
+	 * Sets the voxel of the given Block.
+	 *
+	 * @param block - The Block to set
+	 * @return true if the voxel was not set before
+	 */
+	public boolean set(Block block) {
+		return set(block.getX(), block.getY(), block.getZ());
+	}
+	
+	/**
+	 * Clears the voxel at the given co-ordinates. Positions outside the bounds are ignored.
+	 *
+	 * @param x - The X co-ordinate
+	 * @param y - The Y co-ordinate
+	 * @param z - The Z co-ordinate
+	 * @return true if the voxel was set before
+	 */
+	public boolean clear(int x, int y, int z) {
+		if(!inBounds(x, y, z)){
+			return false;
+		}
+		int slot = findSlot(sectionKey(x >> 4, y >> 4, z >> 4));
+		if(slot < 0){
+			return false;
+		}
+		long[] section = sections[slot];
+		int bit = bitIndex(x, y, z);
+		long mask = 1L << bit;
+		if((section[bit >>> 6] & mask) == 0){
+			return false;
+		}
+		section[bit >>> 6] &= ~mask;
+		size--;
+		if(--counts[slot] == 0){
+			removeSlot(slot);
+		}
+		return true;
+	}
+	
+	/**
+	 * Clears the voxel of the given Block.
+	 *
+	 * @param block - The Block to clear
+	 * @return true if the voxel was set before
+	 */
+	public boolean clear(Block block) {
+		return clear(block.getX(), block.getY(), block.getZ());
+	}
+	
+	/**
+	 * Clears all voxels inside the given range. Sections fully inside the range are dropped as a whole, partially covered sections are cleared
+	 * row by row. Only allocated sections are visited, if the range covers more sections than are allocated the table is scanned instead.
+	 *
+	 * @param x1 - X co-ordinate of corner 1
+	 * @param y1 - Y co-ordinate of corner 1
+	 * @param z1 - Z co-ordinate of corner 1
+	 * @param x2 - X co-ordinate of corner 2
+	 * @param y2 - Y co-ordinate of corner 2
+	 * @param z2 - Z co-ordinate of corner 2
+	 */
+	public void clear(int x1, int y1, int z1, int x2, int y2, int z2) {
+		int lowerX = Math.max(minX, Math.min(x1, x2));
+		int lowerY = Math.max(minY, Math.min(y1, y2));
+		int lowerZ = Math.max(minZ, Math.min(z1, z2));
+		int upperX = Math.min(maxX, Math.max(x1, x2));
+		int upperY = Math.min(maxY, Math.max(y1, y2));
+		int upperZ = Math.min(maxZ, Math.max(z1, z2));
+		if(lowerX > upperX || lowerY > upperY || lowerZ > upperZ){
+			return;
+		}
+		int lowerSX = lowerX >> 4, lowerSY = lowerY >> 4, lowerSZ = lowerZ >> 4;
+		int upperSX = upperX >> 4, upperSY = upperY >> 4, upperSZ = upperZ >> 4;
+		long rangeSections = (long) (upperSX - lowerSX + 1) * (upperSY - lowerSY + 1) * (upperSZ - lowerSZ + 1);
+		
+		if(rangeSections <= sectionCount){
+			for(int sy = lowerSY; sy <= upperSY; sy++){
+				for(int sz = lowerSZ; sz <= upperSZ; sz++){
+					for(int sx = lowerSX; sx <= upperSX; sx++){
+						clearSection(sectionKey(sx, sy, sz), lowerX, lowerY, lowerZ, upperX, upperY, upperZ);
+					}
+				}
+			}
+			return;
+		}
+		
+		//collect the keys first, removing a section may shift later entries of the table into already visited slots
+		long[] matches = new long[sectionCount];
+		int matchCount = 0;
+		for(int slot = 0; slot < keys.length; slot++){
+			if(sections[slot] == null){
+				continue;
+			}
+			long key = keys[slot];
+			int sx = sectionX(key), sy = sectionY(key), sz = sectionZ(key);
+			if(sx >= lowerSX && sx <= upperSX && sy >= lowerSY && sy <= upperSY && sz >= lowerSZ && sz <= upperSZ){
+				matches[matchCount++] = key;
+			}
+		}
+		for(int i = 0; i < matchCount; i++){
+			clearSection(matches[i], lowerX, lowerY, lowerZ, upperX, upperY, upperZ);
+		}
+	}
+	
+	//clears the part of one section inside the range, the range is already limited to the bounds
+	private void clearSection(long key, int lowerX, int lowerY, int lowerZ, int upperX, int upperY, int upperZ) {
+		int slot = findSlot(key);
+		if(slot < 0){
+			return;
+		}
+		int sx = sectionX(key), sy = sectionY(key), sz = sectionZ(key);
+		int fromX = Math.max(lowerX, sx << 4) & 15, toX = Math.min(upperX, (sx << 4) + 15) & 15;
+		int fromY = Math.max(lowerY, sy << 4) & 15, toY = Math.min(upperY, (sy << 4) + 15) & 15;
+		int fromZ = Math.max(lowerZ, sz << 4) & 15, toZ = Math.min(upperZ, (sz << 4) + 15) & 15;
+		if(fromX == 0 && toX == 15 && fromY == 0 && toY == 15 && fromZ == 0 && toZ == 15){
+			size -= counts[slot];
+			removeSlot(slot);
+			return;
+		}
+		long[] section = sections[slot];
+		long rowMask = ((1L << (toX - fromX + 1)) - 1) << fromX;
+		int removed = 0;
+		for(int ly = fromY; ly <= toY; ly++){
+			for(int lz = fromZ; lz <= toZ; lz++){
+				int bit = (ly << 8) | (lz << 4);
+				long mask = rowMask << (bit & 63);
+				removed += Long.bitCount(section[bit >>> 6] & mask);
+				section[bit >>> 6] &= ~mask;
+			}
+		}
+		size -= removed;
+		counts[slot] -= removed;
+		if(counts[slot] == 0){
+			removeSlot(slot);
+		}
+	}
+	
+	/**
+	 * Clears all voxels inside the given Cuboid.
+	 *
+	 * @param range - The Cuboid to clear
+	 */
+	public void clear(Cuboid range) {
+		clear((int) range.getLowerX(),
+				(int) range.getLowerY(),
+				(int) range.getLowerZ(),
+				(int) range.getUpperX(),
+				(int) range.getUpperY(),
+				(int) range.getUpperZ());
+	}
+	
+	/**
+	 * Clears all voxels.
+	 */
+	public void clear() {
+		allocateTable(INITIAL_CAPACITY);
+		size = 0;
+	}
+	
+	/**
+	 * Calls the consumer for every set voxel, section by section. Only allocated sections are visited, the consumer must not change the
+	 * store.
+	 *
+	 * @param consumer - The consumer receiving the co-ordinates of every set voxel
+	 */
+	public void forEach(VoxelConsumer consumer) {
+		for(int slot = 0; slot < keys.length; slot++){
+			long[] section = sections[slot];
+			if(section == null){
+				continue;
+			}
+			long key = keys[slot];
+			int baseX = sectionX(key) << 4;
+			int baseY = sectionY(key) << 4;
+			int baseZ = sectionZ(key) << 4;
+			for(int word = 0; word < SECTION_LONGS; word++){
+				long bits = section[word];
+				while(bits != 0){
+					int bit = (word << 6) | Long.numberOfTrailingZeros(bits);
+					consumer.accept(baseX + (bit & 15), baseY + (bit >>> 8), baseZ + ((bit >>> 4) & 15));
+					bits &= bits - 1;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * @return the amount of set voxels
+	 */
+	public long size() {
+		return size;
+	}
+	
+	/**
+	 * @return true if no voxel is set
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	/**
+	 * @return the amount of sections currently holding a bitset
+	 */
+	public int getAllocatedSectionCount() {
+		return sectionCount;
+	}
+	
+	/**
+	 * @return the Cuboid bounding this store
+	 */
+	public Cuboid getBounds() {
+		return bounds;
+	}
+	
+	private boolean inBounds(int x, int y, int z) {
+		return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ;
+	}
+	
+	private static long sectionKey(int sectionX, int sectionY, int sectionZ) {
+		return (sectionY + SECTION_OFFSET_Y) << 44 | (sectionZ + SECTION_OFFSET_XZ) << 22 | (sectionX + SECTION_OFFSET_XZ);
+	}
+	
+	private static int sectionX(long key) {
+		return (int) ((key & 0x3FFFFF) - SECTION_OFFSET_XZ);
+	}
+	
+	private static int sectionZ(long key) {
+		return (int) (((key >>> 22) & 0x3FFFFF) - SECTION_OFFSET_XZ);
+	}
+	
+	private static int sectionY(long key) {
+		return (int) ((key >>> 44) - SECTION_OFFSET_Y);
+	}
+	
+	/**
+	 * Bit position inside a section, x is the fastest changing axis so a row of 16 x positions shares one long.
+	 */
+	private static int bitIndex(int x, int y, int z) {
+		return ((y & 15) << 8) | ((z & 15) << 4) | (x & 15);
+	}
+	
+	private void allocateTable(int capacity) {
+		keys = new long[capacity];
+		sections = new long[capacity][];
+		counts = new short[capacity];
+		sectionCount = 0;
+	}
+	
+	private int homeSlot(long key) {
+		return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & (keys.length - 1);
+	}
+	
+	/**
+	 * @return the slot holding the section or -1 if the section is not allocated
+	 */
+	private int findSlot(long key) {
+		int mask = keys.length - 1;
+		for(int slot = homeSlot(key); sections[slot] != null; slot = (slot + 1) & mask){
+			if(keys[slot] == key){
+				return slot;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * Allocates an empty section for a key that is not in the table yet.
+	 *
+	 * @return the slot of the new section
+	 */
+	private int insertSection(long key) {
+		//keep the table at most 3/4 full so probe chains stay short
+		if((sectionCount + 1) * 4 > keys.length * 3){
+			resize(keys.length << 1);
+		}
+		int mask = keys.length - 1;
+		int slot = homeSlot(key);
+		while(sections[slot] != null){
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		sections[slot] = new long[SECTION_LONGS];
+		counts[slot] = 0;
+		sectionCount++;
+		return slot;
+	}
+	
+	private void resize(int capacity) {
+		long[] oldKeys = keys;
+		long[][] oldSections = sections;
+		short[] oldCounts = counts;
+		allocateTable(capacity);
+		int mask = capacity - 1;
+		for(int i = 0; i < oldKeys.length; i++){
+			if(oldSections[i] == null){
+				continue;
+			}
+			int slot = homeSlot(oldKeys[i]);
+			while(sections[slot] != null){
+				slot = (slot + 1) & mask;
+			}
+			keys[slot] = oldKeys[i];
+			sections[slot] = oldSections[i];
+			counts[slot] = oldCounts[i];
+			sectionCount++;
+		}
+	}
+	
+	/**
+	 * Releases the section in the given slot and shifts following entries of its probe chain back, so lookups never need tombstones.
+	 */
+	private void removeSlot(int slot) {
+		int mask = keys.length - 1;
+		int hole = slot;
+		sections[hole] = null;
+		counts[hole] = 0;
+		sectionCount--;
+		for(int next = (hole + 1) & mask; sections[next] != null; next = (next + 1) & mask){
+			int home = homeSlot(keys[next]);
+			//the entry may only move back if the hole lies between its home slot and its current slot
+			if(((next - home) & mask) >= ((next - hole) & mask)){
+				keys[hole] = keys[next];
+				sections[hole] = sections[next];
+				counts[hole] = counts[next];
+				sections[next] = null;
+				counts[next] = 0;
+				hole = next;
+			}
+		}
+	}
+	
+	/**
+	 * Receives the co-ordinates of a voxel without boxing them.
+	 */
+	@FunctionalInterface
+	public interface VoxelConsumer{
+		void accept(int x, int y, int z);
+	}
+}
@@ -0,0 +1,93 @@
+package com.wonkglorg.utilitylib.structure;
+
+import org.bukkit.Material;
+
+import java.util.Arrays;
+
+/**
+ * Rough share of each material among the blocks of a generated world. Structures check their rarest cells first, since a cell expecting
+ * stone matches almost anywhere while a cell expecting a gold block rules out a wrong candidate with a single read.
+ * <p>
+ * The defaults describe an overworld, servers with mostly nether or custom terrain can adjust them with {@link #setFrequency(Material,
+ * double)} before structures are built.
+ */
+@SuppressWarnings("unused")
+public final class MaterialFrequency {
+    /**
+     * Share assumed for materials without an explicit frequency, mostly placed or decorative blocks.
+     */
+    public static final double DEFAULT_FREQUENCY = 0.0001;
+    private static final double[] FREQUENCIES = new double[Material.values().length];
+
+    static {
+        Arrays.fill(FREQUENCIES, DEFAULT_FREQUENCY);
+        set(Material.AIR, 0.55);
+        set(Material.CAVE_AIR, 0.03);
+        set(Material.VOID_AIR, 0.01);
+        set(Material.STONE, 0.2);
+        set(Material.DEEPSLATE, 0.1);
+        set(Material.WATER, 0.04);
+        set(Material.DIRT, 0.02);
+        set(Material.ANDESITE, 0.01);
+        set(Material.DIORITE, 0.01);
+        set(Material.GRANITE, 0.01);
+        set(Material.TUFF, 0.005);
+        set(Material.GRAVEL, 0.005);
+        set(Material.SAND, 0.005);
+        set(Material.GRASS_BLOCK, 0.005);
+        set(Material.NETHERRACK, 0.005);
+        set(Material.LAVA, 0.003);
+        set(Material.BEDROCK, 0.002);
+        set(Material.SANDSTONE, 0.002);
+        set(Material.OAK_LEAVES, 0.002);
+        set(Material.SEAGRASS, 0.001);
+        set(Material.SNOW, 0.001);
+        set(Material.ICE, 0.001);
+        set(Material.CLAY, 0.0005);
+        set(Material.COBBLESTONE, 0.0005);
+        set(Material.END_STONE, 0.0005);
+        set(Material.BLACKSTONE, 0.0005);
+        set(Material.BASALT, 0.0005);
+        set(Material.SOUL_SAND, 0.0005);
+    }
+
+    private MaterialFrequency() {
+    }
+
+    private static void set(Material material, double frequency) {
+        FREQUENCIES[material.ordinal()] = frequency;
+    }
+
+    /**
+     * @param material the material to look up
+     * @return the estimated share of the material among all blocks, between 0 and 1
+     */
+    public static double getFrequency(Material material) {
+        return FREQUENCIES[material.ordinal()];
+    }
+
+    /**
+     * @param mask the materials to look up
+     * @return the estimated share of all materials of the mask together, at most 1
+     */
+    public static double getFrequency(MaterialMask mask) {
+        double frequency = 0;
+        for (Material material : mask.getMaterials()) {
+            frequency += FREQUENCIES[material.ordinal()];
+        }
+        return Math.min(1, frequency);
+    }
+
+    /**
+     * Overrides the estimated share of a material. Only structures compiled afterwards use the new value as their starting point.
+     *
+     * @param material  the material to change
+     * @param frequency the share of the material among all blocks, between 0 and 1
+     */
+    public static void setFrequency(Material material, double frequency) {
+        if (frequency < 0 || frequency > 1) {
+            throw new IllegalArgumentException("Frequency must be between 0 and 1, got " + frequency);
+        }
+        set(material, frequency);
+    }
+}
@@ -0,0 +1,158 @@
+package com.wonkglorg.utilitylib.structure;
+
+import org.bukkit.Material;
+import org.bukkit.Tag;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Immutable set of materials a structure cell accepts, stored as a bitmask indexed by {@link Material#ordinal()}. Checking a block is a
+ * single bit test no matter how many materials the cell allows.
+ */
+@SuppressWarnings("unused")
+public final class MaterialMask {
+    private static final Material[] MATERIALS = Material.values();
+    private static final MaterialMask[] SINGLE = new MaterialMask[MATERIALS.length];
+
+    private final long[] bits;
+    private final String name;
+
+    private MaterialMask(long[] bits, String name) {
+        this.bits = bits;
+        this.name = name;
+    }
+
+    /**
+     * @param material the material to accept
+     * @return the mask accepting only the given material, instances are shared
+     */
+    public static MaterialMask of(Material material) {
+        if (material == null) {
+            throw new IllegalArgumentException("Material must not be null");
+        }
+        MaterialMask mask = SINGLE[material.ordinal()];
+        if (mask == null) {
+            long[] bits = new long[(MATERIALS.length + 63) >>> 6];
+            bits[material.ordinal() >>> 6] |= 1L << material.ordinal();
+            mask = new MaterialMask(bits, material.name());
+            SINGLE[material.ordinal()] = mask;
+        }
+        return mask;
+    }
+
+    /**
+     * @param materials the materials to accept
+     * @return the mask accepting any of the given materials
+     */
+    public static MaterialMask of(Material... materials) {
+        return of(Arrays.asList(materials));
+    }
+
+    /**
+     * @param materials the materials to accept
+     * @return the mask accepting any of the given materials
+     */
+    public static MaterialMask of(Collection<Material> materials) {
+        if (materials.isEmpty()) {
+            throw new IllegalArgumentException("Mask must accept at least one material");
+        }
+        if (materials.size() == 1) {
+            return of(materials.iterator().next());
+        }
+        long[] bits = new long[(MATERIALS.length + 63) >>> 6];
+        for (Material material : materials) {
+            bits[material.ordinal() >>> 6] |= 1L << material.ordinal();
+        }
+        return new MaterialMask(bits, null);
+    }
+
+    /**
+     * Creates a mask of the materials currently in the tag, later changes of the tag are not picked up.
+     *
+     * @param tag the tag to accept
+     * @return the mask accepting every material of the tag
+     */
+    public static MaterialMask of(Tag<Material> tag) {
+        Set<Material> values = tag.getValues();
+        if (values.isEmpty()) {
+            throw new IllegalArgumentException("Tag " + tag.getKey() + " does not contain any material");
+        }
+        MaterialMask mask = of(values);
+        return new MaterialMask(mask.bits, "#" + tag.getKey());
+    }
+
+    public boolean contains(Material material) {
+        return contains(material.ordinal());
+    }
+
+    /**
+     * @param ordinal the ordinal of a material, negative values are never contained
+     * @return true if the material is accepted
+     */
+    public boolean contains(int ordinal) {
+        return ordinal >= 0 && (bits[ordinal >>> 6] & (1L << ordinal)) != 0;
+    }
+
+    /**
+     * @return every accepted material
+     */
+    public Set<Material> getMaterials() {
+        Set<Material> materials = EnumSet.noneOf(Material.class);
+        for (int word = 0; word < bits.length; word++) {
+            long remaining = bits[word];
+            while (remaining != 0) {
+                materials.add(MATERIALS[(word << 6) + Long.numberOfTrailingZeros(remaining)]);
+                remaining &= remaining - 1;
+            }
+        }
+        return materials;
+    }
+
+    /**
+     * @return the amount of accepted materials
+     */
+    public int size() {
+        int size = 0;
+        for (long word : bits) {
+            size += Long.bitCount(word);
+        }
+        return size;
+    }
+
+    /**
+     * @return the material if exactly one is accepted, otherwise null
+     */
+    public Material getSingleMaterial() {
+        if (size() != 1) {
+            return null;
+        }
+        for (int word = 0; word < bits.length; word++) {
+            if (bits[word] != 0) {
+                return MATERIALS[(word << 6) + Long.numberOfTrailingZeros(bits[word])];
+            }
+        }
+        return null;
+    }
+
+    long[] getBits() {
+        return bits;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof MaterialMask && Arrays.equals(bits, ((MaterialMask) o).bits);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(bits);
+    }
+
+    @Override
+    public String toString() {
+        return name != null ? name : getMaterials().toString();
+    }
+}
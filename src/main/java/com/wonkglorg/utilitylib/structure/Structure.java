@@ -1,71 +1,210 @@
 package com.wonkglorg.utilitylib.structure;
 
-import org.bukkit.Location;
+import org.bukkit.Bukkit;
 import org.bukkit.Material;
 import org.bukkit.block.Block;
 import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
 import org.bukkit.plugin.java.JavaPlugin;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.BiConsumer;
 
 /**
- * Represents a structure of blocks that can be checked for completion.
+ * Represents a structure of blocks that can be checked for completion. Every cell accepts a {@link MaterialMask}, either a single material
+ * or any of a set of materials, empty cells (null) accept any block.
  */
 public class Structure {
-    private final List<Material[][]> structureLayers = new ArrayList<>();
+    private static final int ANCHOR_SIZE = 5;
+    /**
+     * Amount of candidates checked against a variant before its match plan is sorted again.
+     */
+    private static final int REPLAN_INTERVAL = 256;
+    /**
+     * Weight of the static material frequency against observed checks, in checks.
+     */
+    private static final double PRIOR_WEIGHT = 16;
+    private final List<MaterialMask[][]> structureLayers = new ArrayList<>();
     private BiConsumer<Player, Block> onCompletion = null;
-    private final Set<Material> containedBlockMaterials = new HashSet<>();
+    private CompletionHandler completionHandler = null;
+    /**
+     * Every distinct orientation of the layers, compiled when the structure is first matched after a change.
+     */
+    private Variant[] variants;
+    /**
+     * Cells holding each material across all variants, as variant, x, y, z, cell tuples. A placed block can only be part of the structure at
+     * a cell accepting its material, so these are the only anchors worth trying.
+     */
+    private final Map<Material, int[]> anchorOffsets = new EnumMap<>(Material.class);
+    /**
+     * Box covering every candidate structure that contains a block of each material, relative to that block as min x, y, z and max x, y, z.
+     */
+    private final Map<Material, int[]> candidateExtents = new EnumMap<>(Material.class);
 
     public Structure() {
     }
 
     public void addLayerBelow(Material[][] layer) {
+        addLayerBelow(toMasks(layer));
+    }
+
+    public void addLayerBelow(MaterialMask[][] layer) {
         structureLayers.add(0, layer);
-        updateContainedBlockMaterials(layer);
+        invalidateVariants();
     }
 
     public void addLayerAbove(Material[][] layer) {
+        addLayerAbove(toMasks(layer));
+    }
+
+    public void addLayerAbove(MaterialMask[][] layer) {
         structureLayers.add(layer);
-        updateContainedBlockMaterials(layer);
+        invalidateVariants();
     }
 
     public void setLayer(int index, Material[][] layer) {
+        setLayer(index, toMasks(layer));
+    }
+
+    public void setLayer(int index, MaterialMask[][] layer) {
         structureLayers.set(index, layer);
-        updateContainedBlockMaterials();
+        invalidateVariants();
     }
 
+    /**
+     * Get a layer as single materials, cells accepting more than one material are null. Use {@link #getMaskLayer(int)} to get all cells.
+     *
+     * @param index the index of the layer, 0 is the lowest
+     * @return the layer
+     */
     public Material[][] getLayer(int index) {
+        MaterialMask[][] layer = structureLayers.get(index);
+        Material[][] materials = new Material[layer.length][];
+        for (int row = 0; row < layer.length; row++) {
+            materials[row] = new Material[layer[row].length];
+            for (int col = 0; col < layer[row].length; col++) {
+                materials[row][col] = layer[row][col] == null ? null : layer[row][col].getSingleMaterial();
+            }
+        }
+        return materials;
+    }
+
+    public MaterialMask[][] getMaskLayer(int index) {
         return structureLayers.get(index);
     }
 
+    /**
+     * @return every layer as single materials, see {@link #getLayer(int)}
+     */
     public List<Material[][]> getStructureLayers() {
-        return structureLayers;
+        List<Material[][]> layers = new ArrayList<>(structureLayers.size());
+        for (int index = 0; index < structureLayers.size(); index++) {
+            layers.add(getLayer(index));
+        }
+        return layers;
+    }
+
+    public List<MaterialMask[][]> getMaskLayers() {
+        return Collections.unmodifiableList(structureLayers);
+    }
+
+    private static MaterialMask[][] toMasks(Material[][] layer) {
+        MaterialMask[][] masks = new MaterialMask[layer.length][];
+        for (int row = 0; row < layer.length; row++) {
+            masks[row] = new MaterialMask[layer[row].length];
+            for (int col = 0; col < layer[row].length; col++) {
+                masks[row][col] = layer[row][col] == null ? null : MaterialMask.of(layer[row][col]);
+            }
+        }
+        return masks;
     }
 
     public Set<Material> getContainedBlockMaterials() {
-        return containedBlockMaterials;
+        compile();
+        return anchorOffsets.keySet();
+    }
+
+    /**
+     * @return the distinct orientations of this structure, symmetric structures have less than 8
+     */
+    public List<StructureOrientation> getOrientations() {
+        compile();
+        List<StructureOrientation> orientations = new ArrayList<>(variants.length);
+        for (Variant variant : variants) {
+            orientations.add(variant.orientation);
+        }
+        return orientations;
+    }
+
+    //drops the compiled variants, they are rebuilt on the next match
+    private void invalidateVariants() {
+        variants = null;
+        anchorOffsets.clear();
+        candidateExtents.clear();
     }
 
-    //adds new ones if only layers get added
-    private void updateContainedBlockMaterials(Material[][] layer) {
-        for (Material[] row : layer) {
-            for (Material material : row) {
-                if (material != null) {
-                    containedBlockMaterials.add(material);
+    // Compiles the 4 rotations and their mirrored versions, orientations that produce the same cells as an earlier one are skipped.
+    void compile() {
+        if (variants != null) {
+            return;
+        }
+        int width = 0;
+        int depth = 0;
+        for (MaterialMask[][] layer : structureLayers) {
+            depth = Math.max(depth, layer.length);
+            for (MaterialMask[] row : layer) {
+                width = Math.max(width, row.length);
+            }
+        }
+
+        List<Variant> compiled = new ArrayList<>();
+        for (StructureOrientation orientation : StructureOrientation.values()) {
+            Variant variant = new Variant(orientation, structureLayers, width, depth);
+            boolean duplicate = false;
+            for (Variant existing : compiled) {
+                if (Arrays.deepEquals(existing.grid, variant.grid)) {
+                    duplicate = true;
+                    break;
                 }
             }
+            if (!duplicate) {
+                compiled.add(variant);
+            }
         }
-    }
+        variants = compiled.toArray(new Variant[0]);
 
-    //full update of all
-    private void updateContainedBlockMaterials() {
-        containedBlockMaterials.clear();
-        for (Material[][] layer : structureLayers) {
-            updateContainedBlockMaterials(layer);
+        anchorOffsets.clear();
+        candidateExtents.clear();
+        for (int index = 0; index < variants.length; index++) {
+            Variant variant = variants[index];
+            int[] dimensions = {variant.sizeX, variant.sizeY, variant.sizeZ};
+            for (int cell = 0; cell < variant.masks.length; cell++) {
+                for (Material material : variant.masks[cell].getMaterials()) {
+                    int[] offsets = anchorOffsets.get(material);
+                    int size = offsets == null ? 0 : offsets.length;
+                    offsets = offsets == null ? new int[ANCHOR_SIZE] : Arrays.copyOf(offsets, size + ANCHOR_SIZE);
+                    offsets[size] = index;
+                    offsets[size + 1] = variant.offsets[cell * 3];
+                    offsets[size + 2] = variant.offsets[cell * 3 + 1];
+                    offsets[size + 3] = variant.offsets[cell * 3 + 2];
+                    offsets[size + 4] = cell;
+                    anchorOffsets.put(material, offsets);
+
+                    int[] extent = candidateExtents.computeIfAbsent(material,
+                            key -> new int[]{Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE});
+                    for (int axis = 0; axis < 3; axis++) {
+                        extent[axis] = Math.min(extent[axis], -variant.offsets[cell * 3 + axis]);
+                        extent[axis + 3] = Math.max(extent[axis + 3], dimensions[axis] - 1 - variant.offsets[cell * 3 + axis]);
+                    }
+                }
+            }
         }
     }
 
@@ -76,49 +215,120 @@ public class Structure {
      * @return true if the structure is valid
      */
     public boolean isValidStructure(Block block) {
-        if (!containedBlockMaterials.contains(block.getType())) {
-            return false;
-        }
-        return isStructureComplete(block.getLocation());
-    }
-
-    // Checks if all blocks are in a valid position.
-    private boolean isStructureComplete(Location placedLocation) {
-        for (int yOffset = 0; yOffset < structureLayers.size(); yOffset++) {
-            Material[][] layer = structureLayers.get(yOffset);
-            for (int row = 0; row < layer.length; row++) {
-                for (int col = 0; col < layer[row].length; col++) {
-                    if (layer[row][col] != null) {
-                        Location origin = placedLocation.clone().subtract(col, yOffset, row);
-                        if (doesStructureMatch(origin)) {
-                            return true;
-                        }
-                    }
+        return findMatch(block) != null;
+    }
+
+    /**
+     * Finds a complete structure containing the block in any of its rotations and mirrored versions. The box covering every candidate
+     * origin is read into a {@link StructureBuffer} once, so every block is read from the world at most once.
+     *
+     * @param block the block to check
+     * @return the match or null if the block is not part of a complete structure
+     */
+    public StructureMatch findMatch(Block block) {
+        compile();
+        int[] extent = candidateExtents.get(block.getType());
+        if (extent == null) {
+            return null;
+        }
+        int x = block.getX();
+        int y = block.getY();
+        int z = block.getZ();
+        StructureBuffer buffer = StructureBuffer.capture(block.getWorld(), x + extent[0], y + extent[1], z + extent[2], x + extent[3], y + extent[4],
+                z + extent[5]);
+        return findMatch(buffer, x, y, z);
+    }
+
+    /**
+     * Finds a complete structure containing the given position of a buffer. Candidates reaching outside of the buffer do not match.
+     *
+     * @param buffer the blocks to match against
+     * @param x      the X co-ordinate of the block
+     * @param y      the Y co-ordinate of the block
+     * @param z      the Z co-ordinate of the block
+     * @return the match or null if the block is not part of a complete structure
+     */
+    public StructureMatch findMatch(StructureBuffer buffer, int x, int y, int z) {
+        compile();
+        Material material = buffer.getType(x, y, z);
+        int[] offsets = material == null ? null : anchorOffsets.get(material);
+        if (offsets == null) {
+            return null;
+        }
+        return isStructureComplete(buffer, x, y, z, offsets, null);
+    }
+
+    /**
+     * Adds every complete structure containing the given position of a buffer to the list, in any orientation and at any origin.
+     *
+     * @param buffer  the blocks to match against
+     * @param x       the X co-ordinate of the block
+     * @param y       the Y co-ordinate of the block
+     * @param z       the Z co-ordinate of the block
+     * @param matches the list to add the matches to
+     */
+    void collectMatches(StructureBuffer buffer, int x, int y, int z, List<StructureMatch> matches) {
+        compile();
+        Material material = buffer.getType(x, y, z);
+        int[] offsets = material == null ? null : anchorOffsets.get(material);
+        if (offsets != null) {
+            isStructureComplete(buffer, x, y, z, offsets, matches);
+        }
+    }
+
+    /**
+     * Get the box relative to a block of the material that covers every candidate structure containing that block.
+     *
+     * @return min x, y, z and max x, y, z offsets or null if the material is not part of the structure
+     */
+    int[] getCandidateExtent(Material material) {
+        compile();
+        return candidateExtents.get(material);
+    }
+
+    // Checks if all blocks are in a valid position, only origins that put a cell of the placed material on the block are tried.
+    // Returns the first match, or collects all of them if a list is given.
+    private StructureMatch isStructureComplete(StructureBuffer buffer, int x, int y, int z, int[] offsets, List<StructureMatch> matches) {
+        for (int i = 0; i < offsets.length; i += ANCHOR_SIZE) {
+            Variant variant = variants[offsets[i]];
+            int originX = x - offsets[i + 1];
+            int originY = y - offsets[i + 2];
+            int originZ = z - offsets[i + 3];
+            if (buffer.contains(originX, originY, originZ, variant.sizeX, variant.sizeY, variant.sizeZ)
+                    && doesStructureMatch(variant, buffer, originX, originY, originZ, offsets[i + 4])) {
+                StructureMatch match = new StructureMatch(this, buffer.getWorld(), originX, originY, originZ, variant.orientation);
+                if (matches == null) {
+                    return match;
                 }
+                matches.add(match);
             }
         }
-        return false;
+        return null;
     }
 
-    // Checks if the structure matches the structure at the origin.
-    private boolean doesStructureMatch(Location origin) {
-        Location checkLocation = origin.clone();
-        for (int layerIndex = 0; layerIndex < structureLayers.size(); layerIndex++) {
-            Material[][] layer = structureLayers.get(layerIndex);
-            for (int row = 0; row < layer.length; row++) {
-                for (int col = 0; col < layer[row].length; col++) {
-                    Material expectedMaterial = layer[row][col];
-                    if (expectedMaterial != null) {
-                        checkLocation.setX(origin.getX() + col);
-                        checkLocation.setY(origin.getY() + layerIndex);
-                        checkLocation.setZ(origin.getZ() + row);
-                        if (checkLocation.getBlock().getType() != expectedMaterial) {
-                            return false;
-                        }
-                    }
-                }
+    // Checks if the variant matches the buffered blocks at the origin, the variant has to fit into the buffer. Cells are checked in the
+    // order of the variant's match plan, the anchor cell holds the block's material already and is skipped.
+    private boolean doesStructureMatch(Variant variant, StructureBuffer buffer, int originX, int originY, int originZ, int anchorCell) {
+        short[] blocks = buffer.getOrdinals();
+        int base = buffer.index(originX, originY, originZ);
+        int strideY = buffer.getSizeX() * buffer.getSizeZ();
+        int strideZ = buffer.getSizeX();
+        int[] cellOffsets = variant.offsets;
+        long[][] accepted = variant.bits;
+        int[] plan = variant.plan;
+        for (int step = 0; step < plan.length; step++) {
+            int cell = plan[step];
+            if (cell == anchorCell) {
+                continue;
+            }
+            int index = base + cellOffsets[cell * 3 + 1] * strideY + cellOffsets[cell * 3 + 2] * strideZ + cellOffsets[cell * 3];
+            int ordinal = blocks[index];
+            if (ordinal < 0 || (accepted[cell][ordinal >>> 6] & (1L << ordinal)) == 0) {
+                variant.record(plan, step, anchorCell);
+                return false;
             }
         }
+        variant.record(plan, plan.length, anchorCell);
         return true;
     }
 
@@ -126,17 +336,117 @@ public class Structure {
         this.onCompletion = function;
     }
 
+    /**
+     * Sets the handler called together with the action on completion, it also receives where and in which orientation the structure was
+     * found.
+     *
+     * @param handler the handler or null to remove it
+     */
+    public void setCompletionHandler(CompletionHandler handler) {
+        this.completionHandler = handler;
+    }
+
+    /**
+     * Checks the block for a complete structure without adding the matching cost to the tick. The blocks around it are captured right away,
+     * matching runs on a worker thread and the future is completed on the main thread, after the action on completion and the completion
+     * handler were called. Has to be called on the main thread, the layers must not change until the future is completed.
+     * <p>
+     * The future always completes. It completes exceptionally if a callback throws, or if the plugin is disabled before the tasks ran, in
+     * that case on the thread that failed to schedule the task.
+     * <p>
+     * The block is checked again before the callbacks fire, if it changed in the meantime the result is null.
+     *
+     * @param plugin the plugin used to schedule the tasks
+     * @param player the player who completed the structure, passed on to the callbacks
+     * @param block  the block to check, usually a block that was just placed
+     * @return a future completed on the main thread with the match or null if the block does not complete the structure
+     */
+    public CompletableFuture<StructureMatch> validateAsync(Plugin plugin, Player player, Block block) {
+        compile();
+        CompletableFuture<StructureMatch> future = new CompletableFuture<>();
+        Material material = block.getType();
+        int[] extent = candidateExtents.get(material);
+        if (extent == null) {
+            future.complete(null);
+            return future;
+        }
+        int x = block.getX();
+        int y = block.getY();
+        int z = block.getZ();
+        StructureBuffer buffer = StructureBuffer.capture(block.getWorld(), x + extent[0], y + extent[1], z + extent[2], x + extent[3], y + extent[4],
+                z + extent[5]);
+        runAsync(plugin, future, () -> {
+            StructureMatch match = findMatch(buffer, x, y, z);
+            runOnMainThread(plugin, future, () -> {
+                if (match == null || block.getType() != material) {
+                    future.complete(null);
+                    return;
+                }
+                fireCompletion(player, block, match);
+                future.complete(match);
+            });
+        });
+        return future;
+    }
+
+    /**
+     * Runs the task on a worker thread, the future is completed exceptionally if the task can not be scheduled or throws.
+     */
+    static void runAsync(Plugin plugin, CompletableFuture<?> future, Runnable task) {
+        try {
+            Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    runOnMainThread(plugin, future, () -> future.completeExceptionally(e));
+                }
+            });
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Runs the task on the main thread, the future is completed exceptionally if the task throws. If the plugin was disabled in the meantime
+     * the task can not be scheduled anymore and the future is completed exceptionally on the calling thread instead.
+     */
+    static void runOnMainThread(Plugin plugin, CompletableFuture<?> future, Runnable task) {
+        try {
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Calls the action on completion and the completion handler.
+     */
+    void fireCompletion(Player player, Block block, StructureMatch match) {
+        if (onCompletion != null) {
+            onCompletion.accept(player, block);
+        }
+        if (completionHandler != null) {
+            completionHandler.onCompletion(player, block, match);
+        }
+    }
+
     @Override
     public String toString() {
         StringBuilder builder = new StringBuilder();
 
         for (int layerIndex = 0; layerIndex < structureLayers.size(); layerIndex++) {
             builder.append("-------- Layer ").append(layerIndex + 1).append(" --------\n");
-            Material[][] layer = structureLayers.get(layerIndex);
+            MaterialMask[][] layer = structureLayers.get(layerIndex);
 
-            for (Material[] row : layer) {
-                for (Material material : row) {
-                    builder.append(material == null ? " " : material.name()).append(" ");
+            for (MaterialMask[] row : layer) {
+                for (MaterialMask mask : row) {
+                    builder.append(mask == null ? " " : mask).append(" ");
                 }
                 builder.append("\n");
             }
@@ -145,4 +455,142 @@ public class Structure {
 
         return builder.toString();
     }
+
+    /**
+     * Called when a block completes a structure.
+     */
+    @FunctionalInterface
+    public interface CompletionHandler {
+        /**
+         * @param player the player who completed the structure
+         * @param block  the block that completed it
+         * @param match  the origin and orientation of the completed structure
+         */
+        void onCompletion(Player player, Block block, StructureMatch match);
+    }
+
+    /**
+     * The layers in one orientation, as a flat list of cells so matching does not walk empty cells.
+     * <p>
+     * Cells are checked in the order of a match plan that puts the cells least likely to match first, so most wrong candidates fail
+     * within the first reads. The plan starts out from {@link MaterialFrequency}, preferring cells close to the center on ties, and is
+     * sorted again every {@link #REPLAN_INTERVAL} candidates using how often each cell matched. The counters are updated without
+     * synchronization, concurrent matching may lose counts which only makes the statistics slightly less accurate.
+     */
+    private static final class Variant {
+        private final StructureOrientation orientation;
+        /**
+         * The layers in this orientation, indexed by layer, z and x. Only used to find duplicate orientations.
+         */
+        private final MaterialMask[][][] grid;
+        /**
+         * x, y, z offset triples of every non-null cell.
+         */
+        private final int[] offsets;
+        private final MaterialMask[] masks;
+        /**
+         * Bits of the mask of every cell, see {@link MaterialMask}.
+         */
+        private final long[][] bits;
+        private final int sizeX, sizeY, sizeZ;
+        private final double[] frequencies;
+        private final int[] distances;
+        private final int[] checks;
+        private final int[] matches;
+        private volatile int[] plan;
+        private int attempts;
+
+        private Variant(StructureOrientation orientation, List<MaterialMask[][]> layers, int width, int depth) {
+            this.orientation = orientation;
+            boolean swapped = orientation.getQuarterTurns() % 2 == 1;
+            this.sizeX = swapped ? depth : width;
+            this.sizeY = layers.size();
+            this.sizeZ = swapped ? width : depth;
+            this.grid = new MaterialMask[sizeY][sizeZ][sizeX];
+            int count = 0;
+            for (int layerIndex = 0; layerIndex < layers.size(); layerIndex++) {
+                MaterialMask[][] layer = layers.get(layerIndex);
+                for (int row = 0; row < layer.length; row++) {
+                    for (int col = 0; col < layer[row].length; col++) {
+                        if (layer[row][col] != null) {
+                            grid[layerIndex][orientation.transformZ(col, row, width, depth)][orientation.transformX(col, row, width, depth)] = layer[row][col];
+                            count++;
+                        }
+                    }
+                }
+            }
+
+            this.offsets = new int[count * 3];
+            this.masks = new MaterialMask[count];
+            this.bits = new long[count][];
+            int cell = 0;
+            for (int y = 0; y < grid.length; y++) {
+                for (int z = 0; z < grid[y].length; z++) {
+                    for (int x = 0; x < grid[y][z].length; x++) {
+                        if (grid[y][z][x] != null) {
+                            offsets[cell * 3] = x;
+                            offsets[cell * 3 + 1] = y;
+                            offsets[cell * 3 + 2] = z;
+                            bits[cell] = grid[y][z][x].getBits();
+                            masks[cell++] = grid[y][z][x];
+                        }
+                    }
+                }
+            }
+
+            this.frequencies = new double[count];
+            this.distances = new int[count];
+            this.checks = new int[count];
+            this.matches = new int[count];
+            for (int i = 0; i < count; i++) {
+                frequencies[i] = MaterialFrequency.getFrequency(masks[i]);
+                //doubled so the center of even sized structures stays an integer
+                distances[i] = Math.abs(2 * offsets[i * 3] - (sizeX - 1)) + Math.abs(2 * offsets[i * 3 + 1] - (sizeY - 1))
+                        + Math.abs(2 * offsets[i * 3 + 2] - (sizeZ - 1));
+            }
+            replan();
+        }
+
+        /**
+         * Counts the cells checked by one candidate, every cell before the given step matched and the cell at it did not.
+         */
+        private void record(int[] plan, int failedStep, int anchorCell) {
+            for (int step = 0; step < failedStep; step++) {
+                int cell = plan[step];
+                if (cell != anchorCell) {
+                    checks[cell]++;
+                    matches[cell]++;
+                }
+            }
+            if (failedStep < plan.length) {
+                checks[plan[failedStep]]++;
+            }
+            if (++attempts >= REPLAN_INTERVAL) {
+                attempts = 0;
+                replan();
+            }
+        }
+
+        // Sorts the cells by their estimated chance to match, observed counts are halved afterwards so the plan follows changes.
+        private void replan() {
+            int count = masks.length;
+            double[] chance = new double[count];
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                chance[i] = (matches[i] + frequencies[i] * PRIOR_WEIGHT) / (checks[i] + PRIOR_WEIGHT);
+                order[i] = i;
+                checks[i] /= 2;
+                matches[i] /= 2;
+            }
+            Arrays.sort(order, (a, b) -> {
+                int compare = Double.compare(chance[a], chance[b]);
+                return compare != 0 ? compare : Integer.compare(distances[a], distances[b]);
+            });
+            int[] sorted = new int[count];
+            for (int i = 0; i < count; i++) {
+                sorted[i] = order[i];
+            }
+            plan = sorted;
+        }
+    }
 }
@@ -0,0 +1,209 @@
+package com.wonkglorg.utilitylib.structure;
+
+import com.wonkglorg.utilitylib.chunk.RegionSnapshot;
+import com.wonkglorg.utilitylib.selection.Cuboid;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.World;
+
+import java.util.Arrays;
+
+/**
+ * Block materials of a box, read once and stored as material ordinals so structure candidates that overlap do not read the same blocks
+ * again. Positions that were not captured hold {@link #UNKNOWN} and never match a cell.
+ * <p>
+ * A buffer filled from a {@link RegionSnapshot} can be read from any thread, a buffer filled from a {@link World} has to be captured on the
+ * main thread but can be read anywhere afterwards.
+ */
+@SuppressWarnings("unused")
+public final class StructureBuffer {
+    public static final short UNKNOWN = -1;
+    private static final Material[] MATERIALS = Material.values();
+
+    private final World world;
+    private final int minX, minY, minZ, maxX, maxY, maxZ;
+    private final int sizeX, sizeZ;
+    private final short[] ordinals;
+
+    private StructureBuffer(World world, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        if (minX > maxX || minY > maxY || minZ > maxZ) {
+            throw new IllegalArgumentException("Minimum corner must not be above the maximum corner");
+        }
+        this.world = world;
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.maxZ = maxZ;
+        this.sizeX = maxX - minX + 1;
+        this.sizeZ = maxZ - minZ + 1;
+        long volume = (long) sizeX * sizeZ * (maxY - minY + 1);
+        if (volume > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Buffer of " + volume + " blocks is too large");
+        }
+        this.ordinals = new short[(int) volume];
+        Arrays.fill(ordinals, UNKNOWN);
+    }
+
+    /**
+     * Reads the box from the world, positions outside of the world height stay {@link #UNKNOWN}. Has to be called on the main thread.
+     *
+     * @param world the world to read
+     * @param minX  the lowest X co-ordinate
+     * @param minY  the lowest Y co-ordinate
+     * @param minZ  the lowest Z co-ordinate
+     * @param maxX  the highest X co-ordinate
+     * @param maxY  the highest Y co-ordinate
+     * @param maxZ  the highest Z co-ordinate
+     * @return the filled buffer
+     */
+    public static StructureBuffer capture(World world, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        StructureBuffer buffer = new StructureBuffer(world, minX, minY, minZ, maxX, maxY, maxZ);
+        int fromY = Math.max(minY, world.getMinHeight());
+        int toY = Math.min(maxY, world.getMaxHeight() - 1);
+        for (int y = fromY; y <= toY; y++) {
+            for (int z = minZ; z <= maxZ; z++) {
+                int index = buffer.index(minX, y, z);
+                for (int x = minX; x <= maxX; x++) {
+                    buffer.ordinals[index++] = (short) world.getBlockAt(x, y, z).getType().ordinal();
+                }
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * Reads the part of the box covered by the snapshot, the rest stays {@link #UNKNOWN}. Safe to call from any thread.
+     *
+     * @param world    the world the snapshot was taken in, only used to report matches
+     * @param snapshot the snapshot to read
+     * @param minX     the lowest X co-ordinate
+     * @param minY     the lowest Y co-ordinate
+     * @param minZ     the lowest Z co-ordinate
+     * @param maxX     the highest X co-ordinate
+     * @param maxY     the highest Y co-ordinate
+     * @param maxZ     the highest Z co-ordinate
+     * @return the filled buffer
+     */
+    public static StructureBuffer capture(World world, RegionSnapshot snapshot, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        StructureBuffer buffer = new StructureBuffer(world, minX, minY, minZ, maxX, maxY, maxZ);
+        Cuboid cuboid = snapshot.getCuboid();
+        int fromX = Math.max(minX, (int) cuboid.getLowerX());
+        int fromY = Math.max(minY, (int) cuboid.getLowerY());
+        int fromZ = Math.max(minZ, (int) cuboid.getLowerZ());
+        int toX = Math.min(maxX, (int) cuboid.getUpperX());
+        int toY = Math.min(maxY, (int) cuboid.getUpperY());
+        int toZ = Math.min(maxZ, (int) cuboid.getUpperZ());
+        //read chunk by chunk straight from the chunk snapshots
+        for (int chunkX = fromX >> 4; chunkX <= toX >> 4; chunkX++) {
+            for (int chunkZ = fromZ >> 4; chunkZ <= toZ >> 4; chunkZ++) {
+                ChunkSnapshot chunk = snapshot.getChunkSnapshot(chunkX, chunkZ);
+                if (chunk == null) {
+                    continue;
+                }
+                int startX = Math.max(fromX, chunkX << 4);
+                int endX = Math.min(toX, (chunkX << 4) + 15);
+                int startZ = Math.max(fromZ, chunkZ << 4);
+                int endZ = Math.min(toZ, (chunkZ << 4) + 15);
+                for (int y = fromY; y <= toY; y++) {
+                    for (int z = startZ; z <= endZ; z++) {
+                        int index = buffer.index(startX, y, z);
+                        for (int x = startX; x <= endX; x++) {
+                            buffer.ordinals[index++] = (short) chunk.getBlockType(x & 15, y, z & 15).ordinal();
+                        }
+                    }
+                }
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * @param x the X co-ordinate
+     * @param y the Y co-ordinate
+     * @param z the Z co-ordinate
+     * @return the material ordinal at the position or {@link #UNKNOWN} if it was not captured
+     */
+    public short getOrdinal(int x, int y, int z) {
+        if (!contains(x, y, z)) {
+            return UNKNOWN;
+        }
+        return ordinals[index(x, y, z)];
+    }
+
+    /**
+     * @param x the X co-ordinate
+     * @param y the Y co-ordinate
+     * @param z the Z co-ordinate
+     * @return the material at the position or null if it was not captured
+     */
+    public Material getType(int x, int y, int z) {
+        short ordinal = getOrdinal(x, y, z);
+        return ordinal == UNKNOWN ? null : MATERIALS[ordinal];
+    }
+
+    public boolean contains(int x, int y, int z) {
+        return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ;
+    }
+
+    /**
+     * @return true if the box of the given size at the origin lies completely inside this buffer
+     */
+    boolean contains(int originX, int originY, int originZ, int sizeX, int sizeY, int sizeZ) {
+        return originX >= minX && originY >= minY && originZ >= minZ && originX + sizeX - 1 <= maxX && originY + sizeY - 1 <= maxY
+                && originZ + sizeZ - 1 <= maxZ;
+    }
+
+    /**
+     * Index of a position inside the buffer, moving one block along X adds 1.
+     */
+    int index(int x, int y, int z) {
+        return ((y - minY) * sizeZ + (z - minZ)) * sizeX + (x - minX);
+    }
+
+    short[] getOrdinals() {
+        return ordinals;
+    }
+
+    int getSizeX() {
+        return sizeX;
+    }
+
+    int getSizeZ() {
+        return sizeZ;
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    public int getMinX() {
+        return minX;
+    }
+
+    public int getMinY() {
+        return minY;
+    }
+
+    public int getMinZ() {
+        return minZ;
+    }
+
+    public int getMaxX() {
+        return maxX;
+    }
+
+    public int getMaxY() {
+        return maxY;
+    }
+
+    public int getMaxZ() {
+        return maxZ;
+    }
+
+    @Override
+    public String toString() {
+        return "StructureBuffer{" + minX + "," + minY + "," + minZ + " -> " + maxX + "," + maxY + "," + maxZ + "}";
+    }
+}
@@ -1,8 +1,10 @@
 package com.wonkglorg.utilitylib.structure;
 
 import org.bukkit.Material;
+import org.bukkit.Tag;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -11,7 +13,7 @@ import java.util.Map;
  * Builder class for creating structures in a recipe styled way
  */
 public class StructureBuilder {
-    private final Map<Character, Material> materialMapper = new HashMap<>();
+    private final Map<Character, MaterialMask> materialMapper = new HashMap<>();
     private final List<String[]> layers = new ArrayList<>();
 
     public StructureBuilder() {
@@ -27,7 +29,44 @@ public class StructureBuilder {
      * @return the builder
      */
     public StructureBuilder addMaterial(char key, Material material) {
-        materialMapper.put(key, material);
+        materialMapper.put(key, MaterialMask.of(material));
+        return this;
+    }
+
+    /**
+     * Asigns a character to a set of materials, any of them is valid at the positions of the character
+     *
+     * @param key       the char to use
+     * @param materials the materials to asign
+     * @return the builder
+     */
+    public StructureBuilder addMaterials(char key, Material... materials) {
+        materialMapper.put(key, MaterialMask.of(materials));
+        return this;
+    }
+
+    /**
+     * Asigns a character to a set of materials, any of them is valid at the positions of the character
+     *
+     * @param key       the char to use
+     * @param materials the materials to asign
+     * @return the builder
+     */
+    public StructureBuilder addMaterials(char key, Collection<Material> materials) {
+        materialMapper.put(key, MaterialMask.of(materials));
+        return this;
+    }
+
+    /**
+     * Asigns a character to every material of a tag, for example {@code Tag.LOGS} for any log. The materials are read from the tag
+     * immediately
+     *
+     * @param key the char to use
+     * @param tag the tag to asign
+     * @return the builder
+     */
+    public StructureBuilder addTag(char key, Tag<Material> tag) {
+        materialMapper.put(key, MaterialMask.of(tag));
         return this;
     }
 
@@ -69,7 +108,7 @@ public class StructureBuilder {
         return this;
     }
 
-    private Material[][] convertPatternToMaterials(String[] pattern) {
+    private MaterialMask[][] convertPatternToMaterials(String[] pattern) {
         if (pattern.length == 0) {
             throw new IllegalArgumentException("Pattern must have at least one row.");
         }
@@ -81,7 +120,7 @@ public class StructureBuilder {
             }
         }
 
-        Material[][] materialPattern = new Material[pattern.length][rowLength];
+        MaterialMask[][] materialPattern = new MaterialMask[pattern.length][rowLength];
         for (int i = 0; i < pattern.length; i++) {
             for (int j = 0; j < pattern[i].length(); j++) {
                 char key = pattern[i].charAt(j);
@@ -100,6 +139,7 @@ public class StructureBuilder {
         for (String[] pattern : layers) {
             structure.addLayerAbove(convertPatternToMaterials(pattern));
         }
+        structure.compile();
         return structure;
     }
 }
@@ -0,0 +1,57 @@
+package com.wonkglorg.utilitylib.structure;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+
+/**
+ * A complete {@link Structure} found in the world. The origin is the lowest corner of the structure in the orientation it was found in.
+ */
+public final class StructureMatch {
+    private final Structure structure;
+    private final World world;
+    private final int originX, originY, originZ;
+    private final StructureOrientation orientation;
+
+    StructureMatch(Structure structure, World world, int originX, int originY, int originZ, StructureOrientation orientation) {
+        this.structure = structure;
+        this.world = world;
+        this.originX = originX;
+        this.originY = originY;
+        this.originZ = originZ;
+        this.orientation = orientation;
+    }
+
+    public Structure getStructure() {
+        return structure;
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    public int getOriginX() {
+        return originX;
+    }
+
+    public int getOriginY() {
+        return originY;
+    }
+
+    public int getOriginZ() {
+        return originZ;
+    }
+
+    public Location getOrigin() {
+        return new Location(world, originX, originY, originZ);
+    }
+
+    public StructureOrientation getOrientation() {
+        return orientation;
+    }
+
+    @Override
+    public String toString() {
+        return "StructureMatch{world=" + (world == null ? null : world.getName()) + ", origin=" + originX + "," + originY + "," + originZ
+                + ", orientation=" + orientation + "}";
+    }
+}
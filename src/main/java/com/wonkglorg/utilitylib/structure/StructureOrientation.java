@@ -0,0 +1,73 @@
+package com.wonkglorg.utilitylib.structure;
+
+/**
+ * Horizontal orientation a {@link Structure} was found in. Rotations are clockwise when looking down, mirrored orientations flip the
+ * pattern along the X axis before rotating it.
+ */
+public enum StructureOrientation {
+    NONE(0, false),
+    ROTATE_90(1, false),
+    ROTATE_180(2, false),
+    ROTATE_270(3, false),
+    MIRROR(0, true),
+    MIRROR_ROTATE_90(1, true),
+    MIRROR_ROTATE_180(2, true),
+    MIRROR_ROTATE_270(3, true);
+
+    private final int quarterTurns;
+    private final boolean mirrored;
+
+    StructureOrientation(int quarterTurns, boolean mirrored) {
+        this.quarterTurns = quarterTurns;
+        this.mirrored = mirrored;
+    }
+
+    /**
+     * @return the amount of clockwise quarter turns
+     */
+    public int getQuarterTurns() {
+        return quarterTurns;
+    }
+
+    public boolean isMirrored() {
+        return mirrored;
+    }
+
+    /**
+     * Transforms the X offset of a pattern cell.
+     *
+     * @param col   the column of the cell in the pattern
+     * @param row   the row of the cell in the pattern
+     * @param width the amount of columns of the pattern
+     * @param depth the amount of rows of the pattern
+     * @return the X offset of the cell in this orientation
+     */
+    public int transformX(int col, int row, int width, int depth) {
+        int x = mirrored ? width - 1 - col : col;
+        return switch (quarterTurns) {
+            case 1 -> depth - 1 - row;
+            case 2 -> width - 1 - x;
+            case 3 -> row;
+            default -> x;
+        };
+    }
+
+    /**
+     * Transforms the Z offset of a pattern cell.
+     *
+     * @param col   the column of the cell in the pattern
+     * @param row   the row of the cell in the pattern
+     * @param width the amount of columns of the pattern
+     * @param depth the amount of rows of the pattern
+     * @return the Z offset of the cell in this orientation
+     */
+    public int transformZ(int col, int row, int width, int depth) {
+        int x = mirrored ? width - 1 - col : col;
+        return switch (quarterTurns) {
+            case 1 -> x;
+            case 2 -> depth - 1 - row;
+            case 3 -> width - 1 - x;
+            default -> row;
+        };
+    }
+}
@@ -0,0 +1,205 @@
+package com.wonkglorg.utilitylib.structure;
+
+import org.bukkit.Material;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Checks a placed block against many structures at once. Structures are indexed by the materials they contain, so a block only reaches
+ * the structures using its material, and all of them are matched against one shared {@link StructureBuffer}.
+ * <p>
+ * The index is built from the structures as they are when registered, call {@link #reindex()} after changing the layers of a registered
+ * structure.
+ */
+@SuppressWarnings("unused")
+public class StructureRegistry {
+    private final Set<Structure> structures = new LinkedHashSet<>();
+    private final Map<Material, Structure[]> structuresByMaterial = new EnumMap<>(Material.class);
+    /**
+     * Union of the candidate boxes of all structures using each material, relative to a block of that material.
+     */
+    private final Map<Material, int[]> extentsByMaterial = new EnumMap<>(Material.class);
+
+    public StructureRegistry() {
+    }
+
+    public void register(Structure structure) {
+        if (structures.add(structure)) {
+            index(structure);
+        }
+    }
+
+    public void unregister(Structure structure) {
+        if (structures.remove(structure)) {
+            reindex();
+        }
+    }
+
+    public Set<Structure> getStructures() {
+        return Collections.unmodifiableSet(structures);
+    }
+
+    /**
+     * Rebuilds the material index from all registered structures.
+     */
+    public void reindex() {
+        structuresByMaterial.clear();
+        extentsByMaterial.clear();
+        for (Structure structure : structures) {
+            index(structure);
+        }
+    }
+
+    private void index(Structure structure) {
+        for (Material material : structure.getContainedBlockMaterials()) {
+            Structure[] indexed = structuresByMaterial.get(material);
+            if (indexed == null) {
+                structuresByMaterial.put(material, new Structure[]{structure});
+            } else {
+                Structure[] grown = new Structure[indexed.length + 1];
+                System.arraycopy(indexed, 0, grown, 0, indexed.length);
+                grown[indexed.length] = structure;
+                structuresByMaterial.put(material, grown);
+            }
+
+            int[] extent = structure.getCandidateExtent(material);
+            int[] merged = extentsByMaterial.get(material);
+            if (merged == null) {
+                extentsByMaterial.put(material, extent.clone());
+            } else {
+                for (int axis = 0; axis < 3; axis++) {
+                    merged[axis] = Math.min(merged[axis], extent[axis]);
+                    merged[axis + 3] = Math.max(merged[axis + 3], extent[axis + 3]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds every complete structure containing the block, in all orientations. The blocks around it are read once into a buffer shared
+     * by all structures using the block's material.
+     *
+     * @param block the block to check, usually a block that was just placed
+     * @return the matches, empty if the block does not complete any structure
+     */
+    public List<StructureMatch> findMatches(Block block) {
+        StructureBuffer buffer = capture(block);
+        if (buffer == null) {
+            return Collections.emptyList();
+        }
+        return findMatches(buffer, block.getX(), block.getY(), block.getZ());
+    }
+
+    /**
+     * Finds every complete structure containing the given position of a buffer, in all orientations.
+     *
+     * @param buffer the blocks to match against, see {@link #capture(Block)}
+     * @param x      the X co-ordinate of the block
+     * @param y      the Y co-ordinate of the block
+     * @param z      the Z co-ordinate of the block
+     * @return the matches, empty if the block does not complete any structure
+     */
+    public List<StructureMatch> findMatches(StructureBuffer buffer, int x, int y, int z) {
+        Material material = buffer.getType(x, y, z);
+        Structure[] candidates = material == null ? null : structuresByMaterial.get(material);
+        if (candidates == null) {
+            return Collections.emptyList();
+        }
+        List<StructureMatch> matches = new ArrayList<>(1);
+        for (Structure structure : candidates) {
+            structure.collectMatches(buffer, x, y, z, matches);
+        }
+        return matches;
+    }
+
+    /**
+     * Finds every structure the block completes without adding the matching cost to the tick. The shared buffer is captured right away,
+     * matching runs on a worker thread and the callbacks of every matched structure are called on the main thread before the future is
+     * completed. Has to be called on the main thread, registered structures must not change until the future is completed.
+     * <p>
+     * The block is checked again before the callbacks fire, if it changed in the meantime the result is empty. The future always completes.
+     * If callbacks throw, the remaining callbacks still run and the future completes exceptionally with the first exception. It also
+     * completes exceptionally if the plugin is disabled before the tasks ran.
+     *
+     * @param plugin the plugin used to schedule the tasks
+     * @param player the player who placed the block, passed on to the callbacks
+     * @param block  the block to check
+     * @return a future completed on the main thread with the matches
+     */
+    public CompletableFuture<List<StructureMatch>> validateAsync(Plugin plugin, Player player, Block block) {
+        CompletableFuture<List<StructureMatch>> future = new CompletableFuture<>();
+        Material material = block.getType();
+        StructureBuffer buffer = capture(block);
+        if (buffer == null) {
+            future.complete(Collections.emptyList());
+            return future;
+        }
+        int x = block.getX();
+        int y = block.getY();
+        int z = block.getZ();
+        Structure.runAsync(plugin, future, () -> {
+            List<StructureMatch> matches = findMatches(buffer, x, y, z);
+            Structure.runOnMainThread(plugin, future, () -> {
+                if (matches.isEmpty() || block.getType() != material) {
+                    future.complete(Collections.emptyList());
+                    return;
+                }
+                //a throwing callback must not keep the other structures from completing
+                RuntimeException failure = null;
+                for (StructureMatch match : matches) {
+                    try {
+                        match.getStructure().fireCompletion(player, block, match);
+                    } catch (RuntimeException e) {
+                        if (failure == null) {
+                            failure = e;
+                        } else {
+                            failure.addSuppressed(e);
+                        }
+                    }
+                }
+                if (failure != null) {
+                    future.completeExceptionally(failure);
+                } else {
+                    future.complete(matches);
+                }
+            });
+        });
+        return future;
+    }
+
+    /**
+     * Reads the blocks every registered structure needs to check the block. Has to be called on the main thread.
+     *
+     * @param block the block to check
+     * @return the buffer or null if no registered structure uses the block's material
+     */
+    public StructureBuffer capture(Block block) {
+        int[] extent = extentsByMaterial.get(block.getType());
+        if (extent == null) {
+            return null;
+        }
+        int x = block.getX();
+        int y = block.getY();
+        int z = block.getZ();
+        return StructureBuffer.capture(block.getWorld(), x + extent[0], y + extent[1], z + extent[2], x + extent[3], y + extent[4], z + extent[5]);
+    }
+
+    /**
+     * @param material the material to look up
+     * @return the registered structures containing the material
+     */
+    public List<Structure> getStructures(Material material) {
+        Structure[] indexed = structuresByMaterial.get(material);
+        return indexed == null ? Collections.emptyList() : List.of(indexed);
+    }
+}